@@ -0,0 +1,79 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.benchmark;
+
+import com.github.likavn.eventbus.core.utils.CalculateUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 间隔时间表达式计算基准测试，对比每次解析计算{@link CalculateUtil#evalExpression(String)}与预编译后计算
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculateBenchmark {
+    /**
+     * 间隔时间表达式，变量$count、$intervalTime已替换为具体值
+     */
+    private static final String EXPRESSION = "3*60*(2+5)/(3-1)+10";
+    /**
+     * 与{@link #EXPRESSION}等价的带变量表达式
+     */
+    private static final String VARIABLE_EXPRESSION = "$count*60*(2+$intervalTime)/(3-1)+10";
+
+    private CalculateUtil.Expression expression;
+    private double count = 3;
+    private double intervalTime = 5;
+
+    @Setup
+    public void setup() {
+        expression = CalculateUtil.compile(VARIABLE_EXPRESSION, "$count", "$intervalTime");
+    }
+
+    /**
+     * 每次解析并计算
+     */
+    @Benchmark
+    public double evalExpression() {
+        return CalculateUtil.evalExpression(EXPRESSION);
+    }
+
+    /**
+     * 每次替换变量后解析并计算，即原轮询、失败重试间隔的计算方式
+     */
+    @Benchmark
+    public double replaceAndEval() {
+        return CalculateUtil.evalExpression(VARIABLE_EXPRESSION
+                .replace("$count", String.valueOf((long) count))
+                .replace("$intervalTime", String.valueOf((long) intervalTime)));
+    }
+
+    /**
+     * 预编译表达式计算
+     */
+    @Benchmark
+    public double compiled() {
+        return expression.eval(count, intervalTime, 0);
+    }
+}
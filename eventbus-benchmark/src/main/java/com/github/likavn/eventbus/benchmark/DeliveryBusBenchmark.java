@@ -0,0 +1,116 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.benchmark;
+
+import com.github.likavn.eventbus.core.DeliveryBus;
+import com.github.likavn.eventbus.core.ListenerRegistry;
+import com.github.likavn.eventbus.core.annotation.EventbusListener;
+import com.github.likavn.eventbus.core.api.MsgListener;
+import com.github.likavn.eventbus.core.base.InterceptorContainer;
+import com.github.likavn.eventbus.core.metadata.BusConfig;
+import com.github.likavn.eventbus.core.metadata.data.Message;
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.support.Listener;
+import com.github.likavn.eventbus.core.support.JsonCodec;
+import com.github.likavn.eventbus.core.utils.Func;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息投递基准测试，测量{@link DeliveryBus#deliver(Listener, byte[])}从消息解码、拦截器链到监听器调用的完整开销
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeliveryBusBenchmark {
+    /**
+     * 投递消息的编码格式
+     */
+    @Param({"json", "binary"})
+    private String codec;
+
+    private DeliveryBus deliveryBus;
+    private Listener listener;
+    private byte[] body;
+    private String stringBody;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        BusConfig config = new BusConfig();
+        config.setServiceId("benchmark");
+        InterceptorContainer interceptorContainer = new InterceptorContainer(
+                Collections.emptyList(), Collections.emptyList(),
+                Collections.singletonList(request -> blackhole.consume(request.getRequestId())),
+                Collections.singletonList((request, throwable) -> blackhole.consume(request.getDeliverId())),
+                Collections.emptyList());
+        ListenerRegistry registry = new ListenerRegistry(config);
+        registry.register(new TestListener(blackhole));
+        listener = registry.getTimelyListeners().get(0);
+        deliveryBus = new DeliveryBus(interceptorContainer, config,
+                new NoopSenderAdapter(config, interceptorContainer, registry, blackhole));
+
+        Request<TestBody> request = Request.<TestBody>builder()
+                .requestId("benchmark-request-id")
+                .serviceId("benchmark")
+                .code("benchmark")
+                .deliverCount(1)
+                .body(new TestBody("likavn", 18))
+                .build();
+        body = Func.getCodec(codec).encode(request);
+        // 二进制编码以ISO-8859-1字符串承载，与redis字符串消息一致
+        stringBody = new String(body, JsonCodec.NAME.equals(codec) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 投递单条消息
+     */
+    @Benchmark
+    public void deliver() {
+        deliveryBus.deliver(listener, body);
+    }
+
+    /**
+     * 投递字符串形式的消息，即redis等以字符串承载消息的投递入口
+     */
+    @Benchmark
+    public void deliverString() {
+        deliveryBus.deliver(listener, stringBody);
+    }
+
+    @EventbusListener(codes = "benchmark")
+    public static class TestListener implements MsgListener<TestBody> {
+        private final Blackhole blackhole;
+
+        public TestListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void onMessage(Message<TestBody> message) {
+            blackhole.consume(message.getBody());
+        }
+    }
+}
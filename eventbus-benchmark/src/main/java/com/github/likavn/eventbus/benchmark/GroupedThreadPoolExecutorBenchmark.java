@@ -0,0 +1,97 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.benchmark;
+
+import com.github.likavn.eventbus.core.utils.GroupedThreadPoolExecutor;
+import com.github.likavn.eventbus.core.utils.NamedThreadFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分组线程池基准测试，多个提交线程并发向{@link GroupedThreadPoolExecutor#execute(GroupedThreadPoolExecutor.GTask)}
+ * 提交任务，测量分组并发控制及线程调度在竞争下的吞吐量
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class GroupedThreadPoolExecutorBenchmark {
+    /**
+     * 任务分组数
+     */
+    @Param({"1", "4"})
+    private int groups;
+
+    /**
+     * 每个分组的并发数
+     */
+    @Param({"2"})
+    private int concurrency;
+
+    /**
+     * 空闲线程存活时长，单位：毫秒，工作线程等待任务的最长时间也受此值限制
+     */
+    @Param({"1000"})
+    private long keepAliveTimeMillis;
+
+    private GroupedThreadPoolExecutor executor;
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    @Setup
+    public void setup() {
+        executor = new GroupedThreadPoolExecutor(groups * concurrency, keepAliveTimeMillis,
+                new NamedThreadFactory("benchmark-grouped-"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.clear();
+    }
+
+    /**
+     * 提交线程状态，提交线程按序号轮流分配到各分组
+     */
+    @State(Scope.Thread)
+    public static class Submitter {
+        private String group;
+
+        @Setup
+        public void setup(GroupedThreadPoolExecutorBenchmark benchmark) {
+            group = "group-" + benchmark.threadIndex.getAndIncrement() % benchmark.groups;
+        }
+    }
+
+    /**
+     * 提交一个空任务
+     */
+    @Benchmark
+    public boolean execute(Submitter submitter, Blackhole blackhole) {
+        GroupedThreadPoolExecutor.GTask task = new GroupedThreadPoolExecutor.GTask();
+        task.setName(submitter.group);
+        task.setConcurrency(concurrency);
+        task.target(() -> blackhole.consume(submitter));
+        return executor.execute(task);
+    }
+}
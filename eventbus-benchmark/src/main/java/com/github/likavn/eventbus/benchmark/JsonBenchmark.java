@@ -0,0 +1,140 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.benchmark;
+
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.support.Fast2jsonProvider;
+import com.github.likavn.eventbus.core.support.FastjsonProvider;
+import com.github.likavn.eventbus.core.support.GsonProvider;
+import com.github.likavn.eventbus.core.support.JacksonProvider;
+import com.github.likavn.eventbus.core.support.spi.IJson;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * json序列化基准测试，测量各{@link IJson}实现对{@link Request}的序列化、反序列化开销
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    /**
+     * json实现
+     */
+    @Param({"fastjson2", "fastjson", "jackson", "gson"})
+    private String provider;
+
+    private IJson json;
+    private Request<TestBody> request;
+    private String text;
+    private Type requestType;
+
+    @Setup
+    public void setup() {
+        switch (provider) {
+            case "fastjson2":
+                json = new Fast2jsonProvider();
+                break;
+            case "fastjson":
+                json = new FastjsonProvider();
+                break;
+            case "jackson":
+                json = new JacksonProvider();
+                break;
+            case "gson":
+                json = new GsonProvider();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown json provider " + provider);
+        }
+        request = Request.<TestBody>builder()
+                .requestId("benchmark-request-id")
+                .serviceId("benchmark")
+                .code("benchmark")
+                .deliverCount(1)
+                .body(new TestBody("likavn", 18))
+                .build();
+        text = json.toJsonString(request);
+        requestType = new RequestType(TestBody.class);
+    }
+
+    /**
+     * 序列化
+     */
+    @Benchmark
+    public String serialize() {
+        return json.toJsonString(request);
+    }
+
+    /**
+     * 不指定消息体类型反序列化，消息体由投递时再次解析
+     */
+    @Benchmark
+    public Request<?> deserialize() {
+        return json.parseObject(text, Request.class);
+    }
+
+    /**
+     * 按{@code Request<TestBody>}类型一次反序列化
+     */
+    @Benchmark
+    public Request<?> deserializeTyped() {
+        return json.parseObject(text, requestType);
+    }
+
+    /**
+     * 序列化后再反序列化
+     */
+    @Benchmark
+    public Request<?> roundTrip() {
+        return json.parseObject(json.toJsonString(request), requestType);
+    }
+
+    /**
+     * {@code Request<T>}参数化类型
+     */
+    private static class RequestType implements ParameterizedType {
+        private final Type[] actualTypeArguments;
+
+        RequestType(Type bodyType) {
+            this.actualTypeArguments = new Type[]{bodyType};
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return actualTypeArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return Request.class;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return null;
+        }
+    }
+}
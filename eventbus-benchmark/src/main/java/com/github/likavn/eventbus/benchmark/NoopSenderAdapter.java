@@ -0,0 +1,50 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.benchmark;
+
+import com.github.likavn.eventbus.core.ListenerRegistry;
+import com.github.likavn.eventbus.core.base.AbstractSenderAdapter;
+import com.github.likavn.eventbus.core.base.InterceptorContainer;
+import com.github.likavn.eventbus.core.base.UUIDRequestIdGenerator;
+import com.github.likavn.eventbus.core.metadata.BusConfig;
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 不做任何网络操作的发送适配器，仅对消息进行编码，用于测量发送链路自身的开销
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class NoopSenderAdapter extends AbstractSenderAdapter {
+    private final Blackhole blackhole;
+
+    public NoopSenderAdapter(BusConfig config, InterceptorContainer interceptorContainer,
+                             ListenerRegistry registry, Blackhole blackhole) {
+        super(config, interceptorContainer, new UUIDRequestIdGenerator(), registry);
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public void toSend(Request<?> request) {
+        blackhole.consume(encode(request));
+    }
+
+    @Override
+    public void toSendDelayMessage(Request<?> request) {
+        blackhole.consume(encode(request));
+    }
+}
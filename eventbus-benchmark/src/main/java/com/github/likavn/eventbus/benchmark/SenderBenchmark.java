@@ -0,0 +1,80 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.benchmark;
+
+import com.github.likavn.eventbus.core.ListenerRegistry;
+import com.github.likavn.eventbus.core.base.AbstractSenderAdapter;
+import com.github.likavn.eventbus.core.base.InterceptorContainer;
+import com.github.likavn.eventbus.core.metadata.BusConfig;
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息发送基准测试，使用不做任何网络操作的发送适配器，测量{@link AbstractSenderAdapter#send(Request)}
+ * 自身的开销（构建检查、请求ID生成、拦截器链及编码）
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SenderBenchmark {
+    /**
+     * 发送消息使用的编解码器
+     */
+    @Param({"json", "binary"})
+    private String codec;
+
+    private NoopSenderAdapter sender;
+    private TestBody body;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        BusConfig config = new BusConfig();
+        config.setServiceId("benchmark");
+        config.setCodec(codec);
+        InterceptorContainer interceptorContainer = new InterceptorContainer(
+                Collections.singletonList(request -> blackhole.consume(request.getCode())),
+                Collections.singletonList(request -> blackhole.consume(request.getRequestId())),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        sender = new NoopSenderAdapter(config, interceptorContainer, new ListenerRegistry(config), blackhole);
+        body = new TestBody("likavn", 18);
+    }
+
+    /**
+     * 发送及时消息
+     */
+    @Benchmark
+    public void send() {
+        sender.send(Request.builder().code("benchmark").body(body).build());
+    }
+
+    /**
+     * 发送延时消息
+     */
+    @Benchmark
+    public void sendDelayMessage() {
+        sender.sendDelayMessage(Request.builder().code("benchmark").body(body).delayTime(10L).build());
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.benchmark;
+
+import com.github.likavn.eventbus.core.support.task.Timer;
+import com.github.likavn.eventbus.core.support.task.TimerTask;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时器基准测试，在大量任务（10k+）已调度的情况下，测量{@link Timer}调度新任务及刷新任务执行时间的开销
+ * 刷新即{@link com.github.likavn.eventbus.core.support.task.Task#refreshNextExecutionTime(long)}触发的
+ * {@link Timer#refresh()}
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerBenchmark {
+    /**
+     * 已调度的任务数
+     */
+    @Param({"10000", "100000"})
+    private int taskCount;
+
+    private Timer timer;
+    private NoopTask[] tasks;
+    private long baseTime;
+    private long index;
+
+    @Setup
+    public void setup() {
+        timer = new Timer(true);
+        tasks = new NoopTask[taskCount];
+        // 任务首次执行时间在一天后，测量期间不会被触发
+        long delay = TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < taskCount; i++) {
+            tasks[i] = new NoopTask();
+            timer.schedule(tasks[i], delay + i, delay);
+        }
+        baseTime = System.currentTimeMillis() + delay;
+    }
+
+    @TearDown
+    public void tearDown() {
+        timer.cancel();
+    }
+
+    /**
+     * 调度一个立即执行的一次性任务，任务执行后即从队列移除，队列规模保持不变
+     */
+    @Benchmark
+    public void schedule() {
+        timer.schedule(new NoopTask(), 0);
+    }
+
+    /**
+     * 提前某个任务的下次执行时间并刷新定时器
+     */
+    @Benchmark
+    public void refresh() {
+        NoopTask task = tasks[(int) (index % taskCount)];
+        task.setNextExecutionTime(baseTime - ++index);
+        timer.refresh();
+    }
+
+    private static class NoopTask extends TimerTask {
+        @Override
+        public void run() {
+            // do nothing
+        }
+
+        void setNextExecutionTime(long nextExecutionTime) {
+            this.nextExecutionTime = nextExecutionTime;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.benchmark;
+
+import com.github.likavn.eventbus.core.metadata.data.Message;
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.support.Trigger;
+import com.github.likavn.eventbus.core.utils.Func;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监听器调用基准测试，对比{@link Trigger#invoke(Message)}（LambdaMetafactory生成的调用器）与原反射调用方式
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriggerBenchmark {
+    private TestListener listener;
+    private Method method;
+    private Trigger trigger;
+    private Request<String> request;
+
+    @Setup
+    public void setup(Blackhole blackhole) throws Exception {
+        listener = new TestListener(blackhole);
+        method = TestListener.class.getMethod("onMessage", Message.class);
+        trigger = Trigger.of(listener, method);
+        request = Request.<String>builder().serviceId("benchmark").code("test").body("test").build();
+    }
+
+    /**
+     * 当前调用方式
+     */
+    @Benchmark
+    public void trigger() {
+        trigger.invoke(request);
+    }
+
+    /**
+     * 原调用方式：每次解析消息体、创建参数数组并使用{@link Method#invoke(Object, Object...)}
+     */
+    @Benchmark
+    public void legacy() throws Exception {
+        Object oldBody = request.getBody();
+        try {
+            Object[] args = new Object[1];
+            request.setBody(Func.parseObject(request.getBody(), String.class));
+            args[0] = request;
+            method.invoke(listener, args);
+        } finally {
+            request.setBody((String) oldBody);
+        }
+    }
+
+    /**
+     * 仅反射调用
+     */
+    @Benchmark
+    public void reflection() throws Exception {
+        method.invoke(listener, request);
+    }
+
+    /**
+     * 直接调用，作为基准
+     */
+    @Benchmark
+    public void direct() {
+        listener.onMessage(request);
+    }
+
+    public static class TestListener {
+        private final Blackhole blackhole;
+
+        public TestListener(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        public void onMessage(Message<String> message) {
+            blackhole.consume(message.getBody());
+        }
+    }
+}
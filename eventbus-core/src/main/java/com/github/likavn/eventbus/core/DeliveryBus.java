@@ -26,9 +26,9 @@ import com.github.likavn.eventbus.core.exception.DeliverInvokeException;
 import com.github.likavn.eventbus.core.metadata.BusConfig;
 import com.github.likavn.eventbus.core.metadata.data.Request;
 import com.github.likavn.eventbus.core.metadata.support.FailTrigger;
+import com.github.likavn.eventbus.core.metadata.support.IntervalExpression;
 import com.github.likavn.eventbus.core.metadata.support.Listener;
 import com.github.likavn.eventbus.core.metadata.support.Trigger;
-import com.github.likavn.eventbus.core.utils.CalculateUtil;
 import com.github.likavn.eventbus.core.utils.Func;
 import lombok.extern.slf4j.Slf4j;
 
@@ -59,7 +59,7 @@ public class DeliveryBus {
      * @param body     内容的主体
      */
     public void deliver(Listener listener, byte[] body) {
-        deliver(listener, Func.convertByBytes(body));
+        deliver(listener, Func.convertByBytes(body, listener.getTrigger().getRequestType()));
     }
 
     /**
@@ -69,7 +69,7 @@ public class DeliveryBus {
      * @param body     内容的主体
      */
     public void deliver(Listener listener, String body) {
-        deliver(listener, Func.convertByJson(body));
+        deliver(listener, Func.convertByJson(body, listener.getTrigger().getRequestType()));
     }
 
     /**
@@ -79,7 +79,7 @@ public class DeliveryBus {
      * @param listener 监听器对象，用于接收消息并执行相应操作
      * @param request  请求对象，包含投递所需的信息
      */
-    private void deliver(Listener listener, Request<?> request) {
+    public void deliver(Listener listener, Request<?> request) {
         // 获取监听器的触发条件
         Trigger trigger = listener.getTrigger();
         // 如果请求中没有指定投递ID，则使用触发条件中的投递ID
@@ -187,7 +187,7 @@ public class DeliveryBus {
         }
         // 如果失败重试，则重新投递消息
         if (isFailRetry) {
-            failReTry(request, failRetry);
+            failReTry(listener, request, failRetry);
         }
     }
 
@@ -207,10 +207,11 @@ public class DeliveryBus {
     /**
      * 失败重试
      *
-     * @param request req
-     * @param fail    fail
+     * @param listener listener
+     * @param request  req
+     * @param fail     fail
      */
-    private void failReTry(Request<?> request, FailRetry fail) {
+    private void failReTry(Listener listener, Request<?> request, FailRetry fail) {
         // 获取下次重试时间
         long delayTime = FailRetry.Keep.nextTime();
         if (delayTime < 1 && null != fail) {
@@ -218,7 +219,7 @@ public class DeliveryBus {
             delayTime = fail.nextTime();
             if (delayTime < 1) {
                 // {@link Polling#interval}轮询间隔表达式
-                delayTime = nextIntervalTime(fail.interval(), request, request.getFailRetryCount());
+                delayTime = nextIntervalTime(listener.getFailInterval(), request, request.getFailRetryCount());
             }
         }
         // 如果轮询间隔时间小于1，则不进行轮询投递
@@ -260,7 +261,7 @@ public class DeliveryBus {
             delayTime = polling.nextTime();
             if (delayTime < 1) {
                 // {@link Polling#interval}轮询间隔表达式
-                delayTime = nextIntervalTime(polling.interval(), request, pollingCount);
+                delayTime = nextIntervalTime(listener.getPollingInterval(), request, pollingCount);
             }
         }
         // 如果轮询间隔时间小于1，则不进行轮询投递
@@ -329,17 +330,15 @@ public class DeliveryBus {
     /**
      * 计算下次投递时间
      *
-     * @param intervalExp 间隔表达式
-     * @param request     请求对象
-     * @param count       投递次数
+     * @param interval 已编译的间隔表达式
+     * @param request  请求对象
+     * @param count    投递次数
      * @return 下次投递时间
      */
-    private long nextIntervalTime(String intervalExp, Request<?> request, long count) {
-        if (Func.isEmpty(intervalExp)) {
+    private long nextIntervalTime(IntervalExpression interval, Request<?> request, long count) {
+        if (null == interval) {
             return 0;
         }
-        String exp = intervalExp.replace("$count", String.valueOf(count)).replace("$deliverCount",
-                String.valueOf(request.getDeliverCount())).replace("$intervalTime", String.valueOf(0 == request.getDelayTime() ? 1 : request.getDelayTime()));
-        return CalculateUtil.fixEvalExpression(exp);
+        return interval.nextTime(count, request.getDeliverCount(), 0 == request.getDelayTime() ? 1 : request.getDelayTime());
     }
-}
\ No newline at end of file
+}
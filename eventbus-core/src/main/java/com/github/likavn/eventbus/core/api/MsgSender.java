@@ -17,8 +17,11 @@ package com.github.likavn.eventbus.core.api;
 
 import com.github.likavn.eventbus.core.metadata.data.MsgBody;
 import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.data.SendResult;
 import com.github.likavn.eventbus.core.utils.Func;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 消息发送者接口
@@ -113,4 +116,38 @@ public interface MsgSender {
      * @param request 已经构建好的请求对象，包含消息代码和内容
      */
     void sendDelayMessage(Request<?> request);
+
+    /**
+     * 批量发送已经构建好的Request对象
+     * 每条消息依次执行发送拦截器，之后将整批消息一次性交由消息引擎发送，以减少网络往返次数
+     *
+     * @param requests 已经构建好的请求对象集合
+     */
+    void sendBatch(Collection<? extends Request<?>> requests);
+
+    /**
+     * 批量延迟发送已经构建好的Request对象
+     * 每条消息依次执行发送拦截器，之后将整批延迟消息一次性交由消息引擎发送
+     *
+     * @param requests 已经构建好的请求对象集合，每个请求需设置延迟时间
+     */
+    void sendDelayBatch(Collection<? extends Request<?>> requests);
+
+    /**
+     * 异步发送一个已经构建好的Request对象
+     * 调用线程不等待消息引擎的响应，消息引擎确认写入后完成返回的Future
+     *
+     * @param request 已经构建好的请求对象，包含消息代码和内容
+     * @return 发送结果
+     */
+    CompletableFuture<SendResult> sendAsync(Request<?> request);
+
+    /**
+     * 异步延迟发送一个已经构建好的Request对象
+     * 调用线程不等待消息引擎的响应，消息引擎确认写入后完成返回的Future
+     *
+     * @param request 已经构建好的请求对象，包含消息代码和内容
+     * @return 发送结果
+     */
+    CompletableFuture<SendResult> sendDelayMessageAsync(Request<?> request);
 }
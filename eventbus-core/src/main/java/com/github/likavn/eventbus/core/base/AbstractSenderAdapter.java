@@ -19,13 +19,22 @@ import com.github.likavn.eventbus.core.ListenerRegistry;
 import com.github.likavn.eventbus.core.api.MsgSender;
 import com.github.likavn.eventbus.core.api.RequestIdGenerator;
 import com.github.likavn.eventbus.core.constant.BusConstant;
+import com.github.likavn.eventbus.core.exception.EventBusException;
 import com.github.likavn.eventbus.core.metadata.BusConfig;
 import com.github.likavn.eventbus.core.metadata.MsgType;
 import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.data.SendResult;
 import com.github.likavn.eventbus.core.metadata.support.Listener;
+import com.github.likavn.eventbus.core.support.CompressFrame;
+import com.github.likavn.eventbus.core.support.JsonCodec;
+import com.github.likavn.eventbus.core.support.spi.ICodec;
+import com.github.likavn.eventbus.core.support.spi.ICompressor;
 import com.github.likavn.eventbus.core.utils.Assert;
+import com.github.likavn.eventbus.core.utils.Func;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static com.github.likavn.eventbus.core.utils.Func.*;
 
@@ -35,11 +44,35 @@ import static com.github.likavn.eventbus.core.utils.Func.*;
  * @author likavn
  * @date 2024/01/01
  */
-public abstract class AbstractSenderAdapter implements MsgSender {
+public abstract class AbstractSenderAdapter implements MsgSender, Lifecycle {
+    /**
+     * 不压缩
+     */
+    private static final String COMPRESS_NONE = "none";
     private final BusConfig config;
     private final InterceptorContainer interceptorContainer;
     private final RequestIdGenerator requestIdGenerator;
     private final Map<String, List<Listener>> timelyToDelayListenerMap = new HashMap<>(4);
+    /**
+     * 及时消息发送缓冲器，未配置缓冲时间时为null
+     */
+    private final SendAccumulator sendAccumulator;
+    /**
+     * 发送消息使用的编解码器
+     */
+    private final ICodec codec;
+    /**
+     * 消息体压缩配置
+     */
+    private final BusConfig.Compress compress;
+    /**
+     * 默认的消息体压缩算法，未配置压缩时为null
+     */
+    private final ICompressor compressor;
+    /**
+     * 按消息编码单独配置的压缩算法，值为null时该消息编码不压缩
+     */
+    private final Map<String, ICompressor> codeCompressors = new HashMap<>(4);
 
     protected AbstractSenderAdapter(BusConfig config,
                                     InterceptorContainer interceptorContainer,
@@ -48,7 +81,55 @@ public abstract class AbstractSenderAdapter implements MsgSender {
         this.config = config;
         this.interceptorContainer = interceptorContainer;
         this.requestIdGenerator = requestIdGenerator;
+        this.codec = Func.getCodec(isEmpty(config.getCodec()) ? JsonCodec.NAME : config.getCodec());
+        this.compress = null == config.getCompress() ? new BusConfig.Compress() : config.getCompress();
+        this.compressor = resolveCompressor(compress.getType());
+        compress.getCodeTypes().forEach((code, type) -> codeCompressors.put(code, resolveCompressor(type)));
         initListener(registry);
+        this.sendAccumulator = createSendAccumulator(config.getSend());
+    }
+
+    /**
+     * 根据名称获取压缩算法，未配置或配置为none时返回null
+     *
+     * @param type 压缩算法名称
+     * @return 压缩算法
+     */
+    private ICompressor resolveCompressor(String type) {
+        if (isEmpty(type) || COMPRESS_NONE.equalsIgnoreCase(type)) {
+            return null;
+        }
+        return Func.getCompressor(type);
+    }
+
+    /**
+     * 配置了发送缓冲时间时创建及时消息发送缓冲器
+     *
+     * @param send 发送配置
+     * @return 发送缓冲器
+     */
+    private SendAccumulator createSendAccumulator(BusConfig.Send send) {
+        if (null == send || null == send.getLingerMillis() || send.getLingerMillis() <= 0) {
+            return null;
+        }
+        return new SendAccumulator(send.getLingerMillis(), send.getBatchSize(), this::toSendBatch, interceptorContainer::sendAfterExecute);
+    }
+
+    @Override
+    public void register() throws EventBusException {
+        if (null != sendAccumulator) {
+            sendAccumulator.open();
+        }
+    }
+
+    /**
+     * 销毁时发送所有缓冲中的消息
+     */
+    @Override
+    public void destroy() throws EventBusException {
+        if (null != sendAccumulator) {
+            sendAccumulator.close();
+        }
     }
 
     /**
@@ -86,11 +167,70 @@ public abstract class AbstractSenderAdapter implements MsgSender {
      * 检查消息code是否为空，执行发送前的拦截器操作，然后进行实际的消息发送
      * 如果存在对应的延迟监听器，则将及时消息转为延迟消息发送
      * 最后执行发送后的拦截器操作
+     * 配置了发送缓冲时间时，消息先进入缓冲器，与同一主题的消息合并后批量发送；
+     * 由缓冲器定时发送时本方法已返回，发送失败只记录错误日志
      *
      * @param request 待发送的消息请求对象，类型为泛型
      */
     @Override
     public void send(Request<?> request) {
+        beforeSend(request);
+        if (null != sendAccumulator) {
+            sendAccumulator.append(request);
+            return;
+        }
+        // 执行实际的消息发送操作
+        toSend(request);
+
+        // 执行发送后的拦截器操作
+        interceptorContainer.sendAfterExecute(request);
+    }
+
+    /**
+     * 批量发送及时消息
+     * 每条消息依次完成构建检查、发送前拦截器及转延时处理，之后整批交由{@link #toSendBatch(List)}发送，
+     * 最后依次执行发送后的拦截器操作
+     *
+     * @param requests 待发送的消息请求对象集合
+     */
+    @Override
+    public void sendBatch(Collection<? extends Request<?>> requests) {
+        if (isEmpty(requests)) {
+            return;
+        }
+        List<Request<?>> batch = new ArrayList<>(requests.size());
+        for (Request<?> request : requests) {
+            beforeSend(request);
+            batch.add(request);
+        }
+        // 执行实际的批量消息发送操作
+        toSendBatch(batch);
+        batch.forEach(interceptorContainer::sendAfterExecute);
+    }
+
+    /**
+     * 异步发送及时消息
+     * 发送前的处理与{@link #send(Request)}一致，消息引擎确认写入后再执行发送后的拦截器操作
+     *
+     * @param request 待发送的消息请求对象
+     * @return 发送结果
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Request<?> request) {
+        beforeSend(request);
+        return toSendAsync(request).thenApply(result -> {
+            interceptorContainer.sendAfterExecute(request);
+            return result;
+        });
+    }
+
+    /**
+     * 及时消息发送前置处理
+     * 设置消息类型，检查构建项，执行发送前的拦截器操作，并根据延迟监听器决定是否转为延迟消息发送
+     *
+     * @param request 待发送的消息请求对象
+     */
+    private void beforeSend(Request<?> request) {
         // 设置消息类型为及时消息
         request.setType(MsgType.TIMELY);
         // 检查消息请求对象的构建项是否正确
@@ -100,11 +240,6 @@ public abstract class AbstractSenderAdapter implements MsgSender {
         // 执行发送前的拦截器操作
         interceptorContainer.sendBeforeExecute(request);
         toDelay(request);
-        // 执行实际的消息发送操作
-        toSend(request);
-
-        // 执行发送后的拦截器操作
-        interceptorContainer.sendAfterExecute(request);
     }
 
     /**
@@ -154,6 +289,55 @@ public abstract class AbstractSenderAdapter implements MsgSender {
      * @param interceptor 一个布尔值，指示是否启用拦截器逻辑
      */
     public void sendDelayMessage(Request<?> request, boolean interceptor) {
+        beforeSendDelayMessage(request, interceptor);
+        toSendDelayMessage(request);
+        // 如果启用了拦截器，则在发送后执行拦截器逻辑
+        if (interceptor) {
+            interceptorContainer.sendAfterExecute(request);
+        }
+    }
+
+    /**
+     * 批量发送延迟消息
+     *
+     * @param requests 待发送的延迟消息请求对象集合
+     */
+    @Override
+    public void sendDelayBatch(Collection<? extends Request<?>> requests) {
+        if (isEmpty(requests)) {
+            return;
+        }
+        List<Request<?>> batch = new ArrayList<>(requests.size());
+        for (Request<?> request : requests) {
+            beforeSendDelayMessage(request, true);
+            batch.add(request);
+        }
+        toSendDelayBatch(batch);
+        batch.forEach(interceptorContainer::sendAfterExecute);
+    }
+
+    /**
+     * 异步发送延迟消息
+     *
+     * @param request 请求对象
+     * @return 发送结果
+     */
+    @Override
+    public CompletableFuture<SendResult> sendDelayMessageAsync(Request<?> request) {
+        beforeSendDelayMessage(request, true);
+        return toSendDelayMessageAsync(request).thenApply(result -> {
+            interceptorContainer.sendAfterExecute(request);
+            return result;
+        });
+    }
+
+    /**
+     * 延迟消息发送前置处理
+     *
+     * @param request     请求对象
+     * @param interceptor 是否执行发送前拦截器
+     */
+    private void beforeSendDelayMessage(Request<?> request, boolean interceptor) {
         request.setType(null == request.getType() ? MsgType.DELAY : request.getType());
         checkBuild(request);
         // 确保延迟时间被正确设置且大于0
@@ -162,11 +346,64 @@ public abstract class AbstractSenderAdapter implements MsgSender {
         if (interceptor) {
             interceptorContainer.sendBeforeExecute(request);
         }
-        toSendDelayMessage(request);
-        // 如果启用了拦截器，则在发送后执行拦截器逻辑
-        if (interceptor) {
-            interceptorContainer.sendAfterExecute(request);
+    }
+
+    /**
+     * 使用配置的编解码器将消息编码为字节数组，编码结果达到消息编码对应的压缩阈值时压缩为压缩帧
+     *
+     * @param request req
+     * @return 编码后的字节数组
+     */
+    public byte[] encode(Request<?> request) {
+        byte[] bytes = codec.encode(request);
+        ICompressor c = getCompressor(request);
+        if (null == c || bytes.length < getCompressThreshold(request)) {
+            return bytes;
         }
+        return CompressFrame.wrap(c, bytes);
+    }
+
+    /**
+     * 使用配置的编解码器将消息编码为字符串，用于字符串类型的消息引擎（如redis）
+     * json编码直接返回json字符串，二进制编码及压缩帧以ISO-8859-1字符串保存，可无损还原
+     *
+     * @param request req
+     * @return 编码后的字符串
+     */
+    public String encodeToString(Request<?> request) {
+        boolean json = JsonCodec.NAME.equals(codec.name());
+        if (json && null == getCompressor(request)) {
+            return request.toJson();
+        }
+        byte[] bytes = encode(request);
+        if (json && !CompressFrame.isFrame(bytes)) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 获取消息编码对应的压缩算法
+     *
+     * @param request req
+     * @return 压缩算法，不压缩时为null
+     */
+    private ICompressor getCompressor(Request<?> request) {
+        return codeCompressors.containsKey(request.getCode()) ? codeCompressors.get(request.getCode()) : compressor;
+    }
+
+    /**
+     * 获取消息编码对应的压缩阈值
+     *
+     * @param request req
+     * @return 压缩阈值，单位：字节
+     */
+    private int getCompressThreshold(Request<?> request) {
+        Integer threshold = compress.getCodeThresholdBytes().get(request.getCode());
+        if (null == threshold) {
+            threshold = compress.getThresholdBytes();
+        }
+        return null == threshold ? 0 : threshold;
     }
 
     /**
@@ -183,6 +420,61 @@ public abstract class AbstractSenderAdapter implements MsgSender {
      */
     public abstract void toSendDelayMessage(Request<?> request);
 
+    /**
+     * 异步发送消息，默认在当前线程同步发送，消息引擎支持异步写入时可重写此方法
+     *
+     * @param request req
+     * @return 发送结果
+     */
+    public CompletableFuture<SendResult> toSendAsync(Request<?> request) {
+        return completeSend(request, () -> toSend(request));
+    }
+
+    /**
+     * 异步发送延时消息，默认在当前线程同步发送，消息引擎支持异步写入时可重写此方法
+     *
+     * @param request req
+     * @return 发送结果
+     */
+    public CompletableFuture<SendResult> toSendDelayMessageAsync(Request<?> request) {
+        return completeSend(request, () -> toSendDelayMessage(request));
+    }
+
+    /**
+     * 同步执行发送操作，并将结果或异常包装为已完成的Future
+     *
+     * @param request req
+     * @param send    发送操作
+     * @return 发送结果
+     */
+    protected CompletableFuture<SendResult> completeSend(Request<?> request, Runnable send) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        try {
+            send.run();
+            future.complete(new SendResult(request.getRequestId(), null));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 批量发送消息，默认逐条发送，消息引擎支持批量写入时可重写此方法
+     *
+     * @param requests req list
+     */
+    public void toSendBatch(List<Request<?>> requests) {
+        requests.forEach(this::toSend);
+    }
+
+    /**
+     * 批量发送延时消息，默认逐条发送，消息引擎支持批量写入时可重写此方法
+     *
+     * @param requests req list
+     */
+    public void toSendDelayBatch(List<Request<?>> requests) {
+        requests.forEach(this::toSendDelayMessage);
+    }
 
     /**
      * 发送消息前置操作
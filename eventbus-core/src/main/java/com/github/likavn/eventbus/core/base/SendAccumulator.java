@@ -0,0 +1,254 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.base;
+
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.utils.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 及时消息发送缓冲器
+ * <p>
+ * 按消息主题缓冲待发送的消息，缓冲时间达到{@code lingerMillis}或缓冲数量达到{@code batchSize}时，
+ * 将同一主题的消息合并为一批交由消息引擎批量写入。
+ * <p>
+ * 整批写入失败时逐条重新写入，写入成功的消息执行一次发送后操作，发送后操作抛出的异常不会导致消息重新写入。
+ * 批次因数量达到上限在调用线程发送时，调用方自身的消息写入或发送后操作失败则抛出异常；
+ * 缓冲时间到达后由定时线程发送及关闭时发送的消息，调用方的发送方法已经返回，逐条写入仍失败的消息只记录错误日志，消息丢失。
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+@Slf4j
+public class SendAccumulator {
+    private static final String THREAD_NAME_PREFIX = "eventbus-send-linger-";
+    /**
+     * 关闭时等待正在执行的定时发送任务结束的最长时间
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000L;
+    private final long lingerMillis;
+    private final int batchSize;
+    /**
+     * 批量写入操作
+     */
+    private final Consumer<List<Request<?>>> sender;
+    /**
+     * 消息写入成功后的操作
+     */
+    private final Consumer<Request<?>> afterSend;
+    /**
+     * 消息主题与缓冲批次映射
+     */
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>(4);
+    private volatile ScheduledThreadPoolExecutor scheduler;
+    /**
+     * 缓冲器是否已关闭，关闭后消息不再缓冲，直接发送
+     */
+    private volatile boolean closed = false;
+
+    public SendAccumulator(long lingerMillis, int batchSize, Consumer<List<Request<?>>> sender, Consumer<Request<?>> afterSend) {
+        this.lingerMillis = lingerMillis;
+        this.batchSize = Math.max(batchSize, 1);
+        this.sender = sender;
+        this.afterSend = afterSend;
+        this.scheduler = createScheduler();
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new NamedThreadFactory(THREAD_NAME_PREFIX).newThread(r);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        // 关闭时不再执行未到期的定时发送任务，缓冲中的消息由关闭操作发送
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    /**
+     * 添加待发送的消息，批次已满时在当前线程发送
+     *
+     * @param request 消息请求对象
+     * @throws RuntimeException 在当前线程发送时，该消息发送失败
+     */
+    public void append(Request<?> request) {
+        if (closed) {
+            sender.accept(Collections.singletonList(request));
+            return;
+        }
+        Batch batch = batches.computeIfAbsent(request.topic(), key -> new Batch());
+        List<Request<?>> drained = null;
+        long generation;
+        boolean first;
+        synchronized (batch) {
+            first = batch.requests.isEmpty();
+            generation = batch.generation;
+            batch.requests.add(request);
+            if (batch.requests.size() >= batchSize) {
+                drained = batch.drain();
+            }
+        }
+        if (null != drained) {
+            RuntimeException error = send(drained).get(request);
+            if (null != error) {
+                throw error;
+            }
+            return;
+        }
+        // 添加消息期间缓冲器已关闭，立即发送
+        if (closed) {
+            flush(batch, generation);
+            return;
+        }
+        // 批次中的第一条消息，开始计时
+        if (first) {
+            try {
+                scheduler.schedule(() -> flush(batch, generation), lingerMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flush(batch, generation);
+            }
+        }
+    }
+
+    /**
+     * 缓冲时间到达后发送批次，批次已因数量达到上限被发送时忽略
+     */
+    private void flush(Batch batch, long generation) {
+        List<Request<?>> drained;
+        synchronized (batch) {
+            if (batch.generation != generation || batch.requests.isEmpty()) {
+                return;
+            }
+            drained = batch.drain();
+        }
+        send(drained);
+    }
+
+    /**
+     * 发送所有缓冲中的消息
+     */
+    public void flushAll() {
+        for (Batch batch : batches.values()) {
+            List<Request<?>> drained;
+            synchronized (batch) {
+                if (batch.requests.isEmpty()) {
+                    continue;
+                }
+                drained = batch.drain();
+            }
+            send(drained);
+        }
+    }
+
+    /**
+     * 发送一批消息，整批写入失败时逐条重新写入，写入成功的消息执行发送后操作
+     *
+     * @param requests 消息
+     * @return 写入或发送后操作失败的消息及其异常
+     */
+    private Map<Request<?>, RuntimeException> send(List<Request<?>> requests) {
+        Map<Request<?>, RuntimeException> errors = new IdentityHashMap<>(2);
+        boolean written = false;
+        try {
+            sender.accept(requests);
+            written = true;
+        } catch (RuntimeException e) {
+            if (requests.size() == 1) {
+                log.error("SendAccumulator send error, requestId={}", requests.get(0).getRequestId(), e);
+                errors.put(requests.get(0), e);
+                return errors;
+            }
+            log.warn("SendAccumulator send batch error, resend one by one, size={}", requests.size(), e);
+        }
+        for (Request<?> request : requests) {
+            if (!written) {
+                try {
+                    sender.accept(Collections.singletonList(request));
+                } catch (RuntimeException e) {
+                    log.error("SendAccumulator send error, requestId={}", request.getRequestId(), e);
+                    errors.put(request, e);
+                    continue;
+                }
+            }
+            afterSend(request, errors);
+        }
+        return errors;
+    }
+
+    /**
+     * 执行消息写入成功后的操作
+     */
+    private void afterSend(Request<?> request, Map<Request<?>, RuntimeException> errors) {
+        try {
+            afterSend.accept(request);
+        } catch (RuntimeException e) {
+            log.error("SendAccumulator after send error, requestId={}", request.getRequestId(), e);
+            errors.put(request, e);
+        }
+    }
+
+    /**
+     * 开启缓冲
+     */
+    public void open() {
+        if (scheduler.isShutdown()) {
+            scheduler = createScheduler();
+        }
+        this.closed = false;
+    }
+
+    /**
+     * 关闭缓冲，停止定时发送线程，并发送所有缓冲中的消息
+     */
+    public void close() {
+        this.closed = true;
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("SendAccumulator linger flush not finished in {}ms", CLOSE_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+    }
+
+    /**
+     * 同一消息主题的缓冲批次
+     */
+    private static class Batch {
+        private List<Request<?>> requests = new ArrayList<>();
+        /**
+         * 批次代数，每次发送后递增，用于识别过期的定时发送任务
+         */
+        private long generation = 0;
+
+        private List<Request<?>> drain() {
+            List<Request<?>> drained = requests;
+            requests = new ArrayList<>();
+            generation++;
+            return drained;
+        }
+    }
+}
@@ -15,8 +15,12 @@
  */
 package com.github.likavn.eventbus.core.metadata;
 
+import com.github.likavn.eventbus.core.support.CompressFrame;
 import lombok.Data;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * eventbus全局配置
  *
@@ -58,6 +62,22 @@ public class BusConfig {
      */
     private Integer msgBatchSize = 16;
 
+    /**
+     * 发送消息时使用的编解码器名称（json、binary），默认：json
+     * 接收消息时根据消息首个字节自动识别编码格式，不同编码格式的消息可以共存
+     * {@link com.github.likavn.eventbus.core.support.spi.ICodec}
+     */
+    private String codec = "json";
+
+    /**
+     * 消息投递执行器类别（platform、virtual），默认：platform
+     * virtual时使用虚拟线程投递消息（需JDK21+，低版本JDK自动回退为platform），监听器并发数为同时投递消息的最大数量，
+     * 适合监听器中调用数据库、HTTP等I/O密集型场景，可将并发数设置为数百而不占用大量平台线程
+     * 支持redis、rabbitmq，rocketmq的消费线程由其客户端创建，不支持虚拟线程
+     * {@link com.github.likavn.eventbus.core.metadata.ExecutorType}
+     */
+    private String executor = ExecutorType.PLATFORM.getName();
+
     /**
      * 节点联通性配置
      */
@@ -68,6 +88,16 @@ public class BusConfig {
      */
     private Fail fail = new Fail();
 
+    /**
+     * 消息发送配置
+     */
+    private Send send = new Send();
+
+    /**
+     * 消息体压缩配置
+     */
+    private Compress compress = new Compress();
+
     /**
      * 消息引擎服务节点联通性配置
      */
@@ -99,4 +129,55 @@ public class BusConfig {
          */
         private Long nextTime = 10L;
     }
+
+    /**
+     * 消息发送配置
+     */
+    @Data
+    public static class Send {
+        /**
+         * 及时消息发送前的缓冲等待时间，同一消息主题在等待时间内的消息合并为一批发送，单位：毫秒，
+         * 默认：0，即不缓冲，每条消息直接发送
+         */
+        private Long lingerMillis = 0L;
+
+        /**
+         * 同一消息主题缓冲的最大消息数，达到该数量时立即发送，默认：100条
+         */
+        private Integer batchSize = 100;
+    }
+
+    /**
+     * 消息体压缩配置
+     */
+    @Data
+    public static class Compress {
+        /**
+         * 发送消息时使用的压缩算法（gzip、lz4、zstd），默认：不压缩
+         * lz4、zstd需引入对应的依赖（org.lz4:lz4-java、com.github.luben:zstd-jni），接收端根据消息首个字节自动识别并解压，
+         * 压缩与未压缩的消息可以共存，开启前需所有节点升级至支持解压的版本
+         * {@link com.github.likavn.eventbus.core.support.spi.ICompressor}
+         */
+        private String type;
+
+        /**
+         * 编码后的消息体大于等于该值时才进行压缩，单位：字节，默认：4096字节
+         */
+        private Integer thresholdBytes = 4096;
+
+        /**
+         * 按消息编码单独配置的压缩算法，值为none时该消息编码不压缩，未配置的消息编码使用type
+         */
+        private Map<String, String> codeTypes = new HashMap<>();
+
+        /**
+         * 按消息编码单独配置的压缩阈值，单位：字节，未配置的消息编码使用thresholdBytes
+         */
+        private Map<String, Integer> codeThresholdBytes = new HashMap<>();
+
+        /**
+         * 解压后消息体的最大长度，压缩帧声明的原始长度超过该值时拒绝解压，避免异常消息占用过多内存，单位：字节，默认：64MB
+         */
+        private Integer maxBytes = CompressFrame.DEFAULT_MAX_LENGTH;
+    }
 }
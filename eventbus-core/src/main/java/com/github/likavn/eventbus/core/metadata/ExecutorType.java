@@ -0,0 +1,64 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.metadata;
+
+import com.github.likavn.eventbus.core.utils.Assert;
+import com.github.likavn.eventbus.core.utils.Func;
+import lombok.Getter;
+
+/**
+ * 消息投递执行器类别（platform、virtual）
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+@Getter
+public enum ExecutorType {
+    /**
+     * 平台线程，监听器并发数即为投递线程数
+     */
+    PLATFORM("platform"),
+    /**
+     * 虚拟线程（JDK21+），每条消息由新的虚拟线程投递，监听器并发数为同时投递的最大数量
+     */
+    VIRTUAL("virtual"),
+    ;
+    private final String name;
+
+    ExecutorType(String name) {
+        this.name = name;
+    }
+
+    public boolean valid(String name) {
+        return this.name.equals(name);
+    }
+
+    public static ExecutorType of(String name) {
+        for (ExecutorType en : values()) {
+            if (en.valid(name)) {
+                return en;
+            }
+        }
+        return null;
+    }
+
+    public static void isValid(String name) {
+        Assert.isTrue(!Func.isEmpty(name), "Eventbus executor must not be empty");
+
+        ExecutorType executorType = ExecutorType.of(name);
+        Assert.notNull(executorType, "Eventbus executor is not supported: " + name);
+    }
+}
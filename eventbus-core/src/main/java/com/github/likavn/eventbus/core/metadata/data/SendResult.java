@@ -0,0 +1,44 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.metadata.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 消息发送结果
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SendResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * 事件ID{@link Request#getRequestId()}
+     */
+    private String requestId;
+
+    /**
+     * 消息引擎返回的消息ID，如redis stream记录ID、rocketMq消息ID，消息引擎未返回时为null
+     */
+    private String msgId;
+}
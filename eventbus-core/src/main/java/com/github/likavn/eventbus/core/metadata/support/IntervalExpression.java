@@ -0,0 +1,74 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.metadata.support;
+
+import com.github.likavn.eventbus.core.exception.EventBusException;
+import com.github.likavn.eventbus.core.utils.Assert;
+import com.github.likavn.eventbus.core.utils.CalculateUtil;
+import com.github.likavn.eventbus.core.utils.Func;
+
+/**
+ * 已编译的间隔时间表达式，用于{@link com.github.likavn.eventbus.core.annotation.Polling#interval()}
+ * 和{@link com.github.likavn.eventbus.core.annotation.FailRetry#interval()}
+ * <p>
+ * 表达式在监听器注册时编译及校验，投递时直接代入变量计算
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+public class IntervalExpression {
+    /**
+     * 表达式变量，顺序与{@link #nextTime(long, long, long)}参数一致
+     */
+    private static final String[] VARIABLES = {"$count", "$deliverCount", "$intervalTime"};
+
+    private final CalculateUtil.Expression expression;
+
+    private IntervalExpression(CalculateUtil.Expression expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * 编译并校验间隔时间表达式
+     *
+     * @param interval 表达式
+     * @return 编译后的表达式，表达式为空时返回null
+     */
+    public static IntervalExpression of(String interval) {
+        if (Func.isEmpty(interval)) {
+            return null;
+        }
+        try {
+            IntervalExpression exp = new IntervalExpression(CalculateUtil.compile(interval, VARIABLES));
+            Assert.isTrue(exp.expression.eval(1, 1, 1) > 0, "interval must be greater than 0");
+            return exp;
+        } catch (Exception e) {
+            throw new EventBusException("interval must be a valid expression", e);
+        }
+    }
+
+    /**
+     * 计算下次投递间隔时间
+     *
+     * @param count        当前轮询/失败重试次数
+     * @param deliverCount 当前投递次数
+     * @param intervalTime 本次与上次投递的时间间隔，单位：秒
+     * @return 间隔时间，单位：秒
+     */
+    public long nextTime(long count, long deliverCount, long intervalTime) {
+        return (long) expression.eval(count, deliverCount, intervalTime);
+    }
+}
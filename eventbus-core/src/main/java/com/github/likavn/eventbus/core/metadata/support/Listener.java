@@ -78,6 +78,16 @@ public class Listener {
      */
     private ToDelay toDelay;
 
+    /**
+     * 已编译的轮询间隔时间表达式{@link Polling#interval()}
+     */
+    private IntervalExpression pollingInterval;
+
+    /**
+     * 已编译的失败重试间隔时间表达式{@link FailRetry#interval()}
+     */
+    private IntervalExpression failInterval;
+
     public Listener(String serviceId, List<String> codes, int concurrency, int retryConcurrency, Trigger trigger, FailTrigger failTrigger, Polling polling) {
         this.serviceId = serviceId;
         this.codes = codes;
@@ -90,7 +100,7 @@ public class Listener {
 
     public void isValid() {
         if (null != polling) {
-            Func.isValidIntervalTimeExpression(polling.interval());
+            pollingInterval = IntervalExpression.of(polling.interval());
         }
         if (null != toDelay) {
             Assert.isTrue(toDelay.delayTime() > 0, "@ToDelay.delayTime must be greater than 0");
@@ -99,7 +109,7 @@ public class Listener {
         if (null != failTrigger) {
             FailRetry fail = failTrigger.getFail();
             if (null != fail) {
-                Func.isValidIntervalTimeExpression(fail.interval());
+                failInterval = IntervalExpression.of(fail.interval());
             }
         }
         Assert.isTrue(Func.valid(getTrigger().getPrimitiveClass().getSimpleName()), "%s 消息监听器类名%s", getDeliverId(), BusConstant.TIPS_VALID_NAME);
@@ -23,7 +23,9 @@ import com.github.likavn.eventbus.core.utils.Func;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.invoke.*;
 import java.lang.reflect.*;
+import java.util.Arrays;
 
 /**
  * 触发器实体
@@ -59,8 +61,21 @@ public class Trigger {
     /**
      * 接收数据所在参数数据类型
      */
+    @Getter
     private Type messageDataType;
 
+    /**
+     * 接收数据为普通类（非泛型）时的数据类型class，用于判断消息体是否已解析为目标类型
+     */
+    private Class<?> messageDataClass;
+
+    /**
+     * 按接收数据类型解析消息的类型，即{@code Request<messageDataType>}，
+     * 接收数据类型不支持直接解析时为{@code Request.class}
+     */
+    @Getter
+    private Type requestType = Request.class;
+
     /**
      * 异常所在参数列表位置
      */
@@ -77,6 +92,11 @@ public class Trigger {
     @Getter
     private final String deliverId;
 
+    /**
+     * 注册时生成的直接调用器，监听方法包含消息、异常以外的参数或无法生成时为null，使用反射调用
+     */
+    private Invoker invoker;
+
     protected Trigger(Object invokeBean, Method method) {
         this.invokeBean = invokeBean;
         this.method = method;
@@ -124,10 +144,23 @@ public class Trigger {
         Request request = (Request) message;
         Object oldBody = request.getBody();
         try {
+            if (this.messageDataIndex >= 0) {
+                request.setBody(parseBody(message.getBody()));
+            }
+            if (null != invoker) {
+                try {
+                    invoker.invoke(message, throwable);
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    // 与反射调用一致，由下方统一解包为投递异常
+                    throw new InvocationTargetException(e);
+                }
+                return;
+            }
             Object[] args = new Object[this.paramsCount];
             if (this.paramsCount > 0) {
                 if (this.messageDataIndex >= 0) {
-                    request.setBody(Func.parseObject(message.getBody(), messageDataType));
                     args[this.messageDataIndex] = message;
                 }
                 if (this.throwableIndex >= 0) {
@@ -146,6 +179,19 @@ public class Trigger {
         }
     }
 
+    /**
+     * 解析消息体，消息体已按{@link #requestType}解析为目标类型时直接返回
+     *
+     * @param body 消息体
+     * @return 目标类型的消息体
+     */
+    private Object parseBody(Object body) {
+        if (null != messageDataClass && messageDataClass.isInstance(body)) {
+            return body;
+        }
+        return Func.parseObject(body, messageDataType);
+    }
+
     /**
      * 构建参数
      */
@@ -168,16 +214,175 @@ public class Trigger {
                 if (typeName.contains(Message.class.getName())) {
                     messageDataIndex = index;
                     messageDataType = ((ParameterizedType) parameterTypes[index]).getActualTypeArguments()[0];
+                    buildRequestType();
                 }
                 // 接收异常
                 else if (typeName.contains(Throwable.class.getName())) {
                     throwableIndex = index;
                 }
             }
+            buildInvoker(invokeBean, method, parameterTypes);
         } catch (Exception e) {
             log.error("Trigger.buildParams", e);
             System.exit(1);
         }
     }
 
+    /**
+     * 使用{@link LambdaMetafactory}生成绑定调用对象的监听方法调用器，调用时无需创建参数数组及反射调用。
+     * 监听方法的参数只能为消息和异常，调用器按参数位置传入消息和异常
+     */
+    private void buildInvoker(Object invokeBean, Method method, Type[] parameterTypes) {
+        if (Modifier.isStatic(method.getModifiers()) || parameterTypes.length > 2 || !isVisible(method.getDeclaringClass())) {
+            return;
+        }
+        for (int index = 0; index < parameterTypes.length; index++) {
+            if (index != messageDataIndex && index != throwableIndex) {
+                // 未知参数，使用反射调用
+                return;
+            }
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            switch (parameterTypes.length) {
+                case 0: {
+                    NoArgInvoker target = metafactory(lookup, handle, invokeBean, NoArgInvoker.class);
+                    this.invoker = (message, throwable) -> target.invoke();
+                    break;
+                }
+                case 1: {
+                    OneArgInvoker target = metafactory(lookup, handle, invokeBean, OneArgInvoker.class);
+                    this.invoker = messageDataIndex == 0
+                            ? (message, throwable) -> target.invoke(message)
+                            : (message, throwable) -> target.invoke(throwable);
+                    break;
+                }
+                default: {
+                    TwoArgInvoker target = metafactory(lookup, handle, invokeBean, TwoArgInvoker.class);
+                    this.invoker = messageDataIndex == 0
+                            ? (message, throwable) -> target.invoke(message, throwable)
+                            : (message, throwable) -> target.invoke(throwable, message);
+                    break;
+                }
+            }
+        } catch (Throwable e) {
+            log.debug("Trigger.buildInvoker {}#{} use reflection", primitiveClass.getName(), method.getName(), e);
+        }
+    }
+
+    /**
+     * 生成函数式接口实现，调用对象作为捕获参数绑定
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T metafactory(MethodHandles.Lookup lookup, MethodHandle handle, Object invokeBean, Class<T> invokerClass) throws Throwable {
+        MethodType implType = handle.type();
+        Class<?> beanClass = implType.parameterType(0);
+        MethodType instantiatedType = implType.dropParameterTypes(0, 1).changeReturnType(void.class);
+        MethodType samType = instantiatedType.generic().changeReturnType(void.class);
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke",
+                MethodType.methodType(invokerClass, beanClass), samType, handle, instantiatedType);
+        return (T) callSite.getTarget().invoke(invokeBean);
+    }
+
+    /**
+     * 生成的调用器类由当前类的类加载器定义，监听类需对其可见（如spring-boot-devtools重启类加载器中的类不可见）
+     */
+    private static boolean isVisible(Class<?> clazz) {
+        try {
+            return Class.forName(clazz.getName(), false, Trigger.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 接收数据为普通类时，构建{@code Request<messageDataType>}类型，投递时消息与消息体一次解析完成；
+     * 字符串类型的消息体保持原样，泛型类型的消息体仍在投递时解析
+     */
+    private void buildRequestType() {
+        if (!(messageDataType instanceof Class)) {
+            return;
+        }
+        messageDataClass = (Class<?>) messageDataType;
+        if (Object.class == messageDataClass || Func.isInterfaceImpl(messageDataClass, CharSequence.class)) {
+            return;
+        }
+        requestType = new RequestType(messageDataClass);
+    }
+
+    /**
+     * 监听方法调用器
+     */
+    @FunctionalInterface
+    private interface Invoker {
+        void invoke(Object message, Throwable throwable) throws Throwable;
+    }
+
+    @FunctionalInterface
+    interface NoArgInvoker {
+        void invoke();
+    }
+
+    @FunctionalInterface
+    interface OneArgInvoker {
+        void invoke(Object arg);
+    }
+
+    @FunctionalInterface
+    interface TwoArgInvoker {
+        void invoke(Object arg0, Object arg1);
+    }
+
+    /**
+     * {@code Request<T>}参数化类型
+     */
+    private static final class RequestType implements ParameterizedType {
+        private final Type[] actualTypeArguments;
+
+        private RequestType(Type bodyType) {
+            this.actualTypeArguments = new Type[]{bodyType};
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return actualTypeArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return Request.class;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ParameterizedType)) {
+                return false;
+            }
+            ParameterizedType that = (ParameterizedType) o;
+            return Request.class.equals(that.getRawType())
+                    && null == that.getOwnerType()
+                    && Arrays.equals(actualTypeArguments, that.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(actualTypeArguments) ^ Request.class.hashCode();
+        }
+
+        @Override
+        public String getTypeName() {
+            return Request.class.getName() + "<" + actualTypeArguments[0].getTypeName() + ">";
+        }
+
+        @Override
+        public String toString() {
+            return getTypeName();
+        }
+    }
 }
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.support;
+
+import com.github.likavn.eventbus.core.exception.EventBusException;
+import com.github.likavn.eventbus.core.metadata.MsgType;
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.support.spi.ICodec;
+import com.github.likavn.eventbus.core.utils.Func;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 二进制编解码器
+ * <p>
+ * 消息体字段按固定顺序写入，整数使用varint编码，字符串使用“长度+UTF-8字节”编码；
+ * 业务消息体为字符串时直接写入，否则写入其json字符串，解码后保持为json字符串，投递时按监听器的数据类型解析一次。
+ * <p>
+ * 格式：魔数(1) 版本(1) serviceId code requestId deliverId deliverCount pollingCount failRetryCount
+ * type delayTime flags headers bodyTag body
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class BinaryCodec implements ICodec {
+    public static final String NAME = "binary";
+    private static final byte MAGIC = (byte) 0xEB;
+    private static final byte VERSION = 1;
+    private static final int FLAG_TO_DELAY = 1;
+    private static final int FLAG_RETRY = 1 << 1;
+    private static final byte BODY_NULL = 0;
+    private static final byte BODY_STRING = 1;
+    private static final byte BODY_JSON = 2;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte magic() {
+        return MAGIC;
+    }
+
+    @Override
+    public byte[] encode(Request<?> request) {
+        Writer writer = new Writer();
+        writer.writeByte(MAGIC);
+        writer.writeByte(VERSION);
+        writer.writeString(request.getServiceId());
+        writer.writeString(request.getCode());
+        writer.writeString(request.getRequestId());
+        writer.writeString(request.getDeliverId());
+        writer.writeVarLong(request.getDeliverCount());
+        writer.writeVarLong(request.getPollingCount());
+        writer.writeVarLong(request.getFailRetryCount());
+        writer.writeVarLong(null == request.getType() ? 0 : request.getType().getValue());
+        writer.writeVarLong(request.getDelayTime());
+        writer.writeByte((request.isToDelay() ? FLAG_TO_DELAY : 0) | (request.isRetry() ? FLAG_RETRY : 0));
+        Map<String, String> headers = request.getHeaders();
+        if (null == headers) {
+            writer.writeVarLong(0);
+        } else {
+            writer.writeVarLong(headers.size() + 1L);
+            headers.forEach((k, v) -> {
+                writer.writeString(k);
+                writer.writeString(v);
+            });
+        }
+        Object body = request.getBody();
+        if (null == body) {
+            writer.writeByte(BODY_NULL);
+        } else if (body instanceof CharSequence) {
+            writer.writeByte(BODY_STRING);
+            writer.writeString(body.toString());
+        } else {
+            writer.writeByte(BODY_JSON);
+            writer.writeString(Func.toJson(body));
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public Request<?> decode(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+        if (reader.readByte() != MAGIC) {
+            throw new EventBusException("binary codec magic mismatch");
+        }
+        byte version = reader.readByte();
+        if (version != VERSION) {
+            throw new EventBusException("binary codec unsupported version " + version);
+        }
+        Request<Object> request = new Request<>();
+        request.setServiceId(reader.readString());
+        request.setCode(reader.readString());
+        request.setRequestId(reader.readString());
+        request.setDeliverId(reader.readString());
+        request.setDeliverCount((int) reader.readVarLong());
+        request.setPollingCount((int) reader.readVarLong());
+        request.setFailRetryCount((int) reader.readVarLong());
+        request.setType(toMsgType((int) reader.readVarLong()));
+        request.setDelayTime(reader.readVarLong());
+        int flags = reader.readByte();
+        request.setToDelay((flags & FLAG_TO_DELAY) != 0);
+        request.setRetry((flags & FLAG_RETRY) != 0);
+        int headerCount = (int) reader.readVarLong();
+        if (headerCount > 0) {
+            Map<String, String> headers = new HashMap<>(Math.max(4, headerCount * 2));
+            for (int i = 1; i < headerCount; i++) {
+                headers.put(reader.readString(), reader.readString());
+            }
+            request.setHeaders(headers);
+        }
+        // 业务消息体保持为字符串，投递时按监听器数据类型解析
+        if (reader.readByte() != BODY_NULL) {
+            request.setBody(reader.readString());
+        }
+        return request;
+    }
+
+    private static MsgType toMsgType(int value) {
+        for (MsgType type : MsgType.values()) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 可扩容的字节写入器
+     */
+    private static class Writer {
+        private byte[] buf = new byte[256];
+        private int count;
+
+        private void ensureCapacity(int len) {
+            if (count + len > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+            }
+        }
+
+        private void writeByte(int b) {
+            ensureCapacity(1);
+            buf[count++] = (byte) b;
+        }
+
+        /**
+         * zigzag + varint 编码
+         */
+        private void writeVarLong(long value) {
+            long v = (value << 1) ^ (value >> 63);
+            ensureCapacity(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[count++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[count++] = (byte) v;
+        }
+
+        /**
+         * 长度+1（0表示null）+ UTF-8字节
+         */
+        private void writeString(String value) {
+            if (null == value) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buf, count, bytes.length);
+            count += bytes.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+    }
+
+    /**
+     * 字节读取器
+     */
+    private static class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        private Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        private byte readByte() {
+            if (pos >= buf.length) {
+                throw new EventBusException("binary codec unexpected end of data");
+            }
+            return buf[pos++];
+        }
+
+        private long readVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (v >>> 1) ^ -(v & 1);
+                }
+            }
+            throw new EventBusException("binary codec malformed varint");
+        }
+
+        private String readString() {
+            int len = (int) readVarLong() - 1;
+            if (len < 0) {
+                return null;
+            }
+            if (pos + len > buf.length) {
+                throw new EventBusException("binary codec unexpected end of data");
+            }
+            String value = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return value;
+        }
+    }
+}
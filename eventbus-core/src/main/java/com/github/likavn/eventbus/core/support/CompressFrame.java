@@ -0,0 +1,115 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.support;
+
+import com.github.likavn.eventbus.core.exception.EventBusException;
+import com.github.likavn.eventbus.core.support.spi.ICompressor;
+import com.github.likavn.eventbus.core.utils.Assert;
+import com.github.likavn.eventbus.core.utils.Func;
+
+/**
+ * 压缩消息帧
+ * <p>
+ * 编解码器的编码结果经压缩后按以下格式保存，首个字节为压缩帧魔数，与各编解码器的魔数不能重复，
+ * 接收端根据首个字节识别压缩帧，解压后再根据原始编码结果的首个字节选择编解码器解码。
+ * <p>
+ * 格式：魔数(1) 压缩算法ID(1) 原始长度(4) 压缩数据
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public final class CompressFrame {
+    /**
+     * 压缩帧魔数
+     */
+    public static final byte MAGIC = (byte) 0xEC;
+    /**
+     * 默认解压后的最大长度，64MB
+     */
+    public static final int DEFAULT_MAX_LENGTH = 64 * 1024 * 1024;
+    private static final int HEADER_LENGTH = 6;
+    /**
+     * 解压后的最大长度，原始长度超过该值的压缩帧拒绝解压
+     */
+    private static volatile int maxLength = DEFAULT_MAX_LENGTH;
+
+    private CompressFrame() {
+    }
+
+    /**
+     * 设置解压后的最大长度
+     *
+     * @param maxLength 最大长度，单位：字节
+     */
+    public static void setMaxLength(int maxLength) {
+        Assert.isTrue(maxLength > 0, "compress maxBytes must be greater than 0");
+        CompressFrame.maxLength = maxLength;
+    }
+
+    /**
+     * 是否为压缩帧
+     *
+     * @param bytes 字节数组
+     * @return true：压缩帧
+     */
+    public static boolean isFrame(byte[] bytes) {
+        return bytes.length > HEADER_LENGTH && bytes[0] == MAGIC;
+    }
+
+    /**
+     * 压缩编码结果并封装为压缩帧，压缩后未变小时返回原始编码结果
+     *
+     * @param compressor 压缩算法
+     * @param bytes      编码结果
+     * @return 压缩帧或原始编码结果
+     */
+    public static byte[] wrap(ICompressor compressor, byte[] bytes) {
+        byte[] compressed = compressor.compress(bytes);
+        if (compressed.length + HEADER_LENGTH >= bytes.length) {
+            return bytes;
+        }
+        byte[] frame = new byte[compressed.length + HEADER_LENGTH];
+        frame[0] = MAGIC;
+        frame[1] = compressor.id();
+        int length = bytes.length;
+        frame[2] = (byte) (length >>> 24);
+        frame[3] = (byte) (length >>> 16);
+        frame[4] = (byte) (length >>> 8);
+        frame[5] = (byte) length;
+        System.arraycopy(compressed, 0, frame, HEADER_LENGTH, compressed.length);
+        return frame;
+    }
+
+    /**
+     * 解压压缩帧，返回原始编码结果，原始长度超过最大长度时在分配内存前拒绝解压
+     *
+     * @param frame 压缩帧
+     * @return 原始编码结果
+     */
+    public static byte[] unwrap(byte[] frame) {
+        ICompressor compressor = Func.getCompressor(frame[1]);
+        int length = ((frame[2] & 0xFF) << 24) | ((frame[3] & 0xFF) << 16) | ((frame[4] & 0xFF) << 8) | (frame[5] & 0xFF);
+        if (length <= 0) {
+            throw new EventBusException("compress frame length invalid: " + length);
+        }
+        if (length > maxLength) {
+            throw new EventBusException("compress frame length " + length + " exceeds max length " + maxLength);
+        }
+        byte[] compressed = new byte[frame.length - HEADER_LENGTH];
+        System.arraycopy(frame, HEADER_LENGTH, compressed, 0, compressed.length);
+        return compressor.decompress(compressed, length);
+    }
+}
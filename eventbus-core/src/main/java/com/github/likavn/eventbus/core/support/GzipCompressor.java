@@ -0,0 +1,80 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.support;
+
+import com.github.likavn.eventbus.core.exception.EventBusException;
+import com.github.likavn.eventbus.core.support.spi.ICompressor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip压缩算法，使用JDK自带实现，无需额外依赖
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class GzipCompressor implements ICompressor {
+    public static final String NAME = "gzip";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte id() {
+        return 1;
+    }
+
+    @Override
+    public String className() {
+        return "java.util.zip.GZIPOutputStream";
+    }
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 16);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new EventBusException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes, int originalLength) {
+        byte[] result = new byte[originalLength];
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            int offset = 0;
+            while (offset < originalLength) {
+                int read = in.read(result, offset, originalLength - offset);
+                if (read < 0) {
+                    throw new EventBusException("gzip decompress failed, unexpected end of data");
+                }
+                offset += read;
+            }
+        } catch (IOException e) {
+            throw new EventBusException(e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.support;
+
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.support.spi.ICodec;
+import com.github.likavn.eventbus.core.utils.Func;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * json编解码器，使用{@link com.github.likavn.eventbus.core.support.spi.IJson}序列化消息体
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class JsonCodec implements ICodec {
+    public static final String NAME = "json";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte magic() {
+        return '{';
+    }
+
+    @Override
+    public byte[] encode(Request<?> request) {
+        return request.toJson().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Request<?> decode(byte[] bytes) {
+        return Func.parseObject(new String(bytes, StandardCharsets.UTF_8), Request.class);
+    }
+}
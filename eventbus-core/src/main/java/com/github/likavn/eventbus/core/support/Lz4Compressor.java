@@ -0,0 +1,61 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.support;
+
+import com.github.likavn.eventbus.core.support.spi.ICompressor;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * lz4压缩算法，压缩率低于gzip、zstd，但压缩及解压速度最快，需引入lz4-java依赖
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class Lz4Compressor implements ICompressor {
+    public static final String NAME = "lz4";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte id() {
+        return 2;
+    }
+
+    @Override
+    public String className() {
+        return "net.jpountz.lz4.LZ4Factory";
+    }
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        return Lz4Util.COMPRESSOR.compress(bytes);
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes, int originalLength) {
+        return Lz4Util.DECOMPRESSOR.decompress(bytes, originalLength);
+    }
+
+    private static class Lz4Util {
+        private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+        private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.support;
+
+import com.github.likavn.eventbus.core.exception.EventBusException;
+import com.github.likavn.eventbus.core.support.spi.ICompressor;
+import com.github.luben.zstd.Zstd;
+
+/**
+ * zstd压缩算法，压缩率接近或优于gzip，速度明显快于gzip，需引入zstd-jni依赖
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class ZstdCompressor implements ICompressor {
+    public static final String NAME = "zstd";
+    /**
+     * 压缩级别，使用zstd默认级别
+     */
+    private static final int LEVEL = 3;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public byte id() {
+        return 3;
+    }
+
+    @Override
+    public String className() {
+        return "com.github.luben.zstd.Zstd";
+    }
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        return Zstd.compress(bytes, LEVEL);
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes, int originalLength) {
+        byte[] result = Zstd.decompress(bytes, originalLength);
+        if (result.length != originalLength) {
+            throw new EventBusException("zstd decompress failed, unexpected length " + result.length);
+        }
+        return result;
+    }
+}
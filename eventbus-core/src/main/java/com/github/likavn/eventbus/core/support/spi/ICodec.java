@@ -0,0 +1,59 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.support.spi;
+
+import com.github.likavn.eventbus.core.metadata.data.Request;
+
+/**
+ * 消息编解码接口。
+ * 负责{@link Request}消息体与传输字节之间的转换，编码结果的首个字节必须为{@link #magic()}，
+ * 接收端根据首个字节选择对应的解码器，使不同编码格式的消息可以在同一队列中共存。
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public interface ICodec {
+
+    /**
+     * 获取编解码器名称，用于配置项{@code eventbus.codec}选择发送端使用的编码器。
+     *
+     * @return 编解码器名称
+     */
+    String name();
+
+    /**
+     * 获取编码结果的首个字节（魔数），各编解码器之间不能重复。
+     *
+     * @return 魔数
+     */
+    byte magic();
+
+    /**
+     * 将消息体编码为字节数组，结果的首个字节为{@link #magic()}。
+     *
+     * @param request 消息体
+     * @return 编码后的字节数组
+     */
+    byte[] encode(Request<?> request);
+
+    /**
+     * 将字节数组解码为消息体。
+     *
+     * @param bytes 编码后的字节数组，包含首个魔数字节
+     * @return 消息体
+     */
+    Request<?> decode(byte[] bytes);
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.core.support.spi;
+
+/**
+ * 消息体压缩算法接口。
+ * 发送端对超过压缩阈值的编码结果进行压缩，压缩结果以{@link com.github.likavn.eventbus.core.support.CompressFrame}格式保存，
+ * 帧中记录压缩算法的{@link #id()}，接收端根据该ID选择对应的压缩算法解压后再按编解码器解码。
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public interface ICompressor {
+
+    /**
+     * 获取压缩算法名称，用于配置项{@code eventbus.compress.type}选择发送端使用的压缩算法。
+     *
+     * @return 压缩算法名称
+     */
+    String name();
+
+    /**
+     * 获取压缩算法ID，写入压缩帧中用于接收端识别压缩算法，各压缩算法之间不能重复。
+     *
+     * @return 压缩算法ID
+     */
+    byte id();
+
+    /**
+     * 检查当前压缩算法是否可用。
+     * 通过尝试加载依赖的类名来判断其是否可用，压缩算法依赖的类库为可选依赖。
+     *
+     * @return 如果类可用，则返回true；否则返回false。
+     */
+    default boolean active() {
+        try {
+            Class.forName(className());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 获取压缩算法依赖的类名，用于激活检查。
+     *
+     * @return 依赖的类名
+     */
+    String className();
+
+    /**
+     * 压缩字节数组。
+     *
+     * @param bytes 原始字节数组
+     * @return 压缩后的字节数组
+     */
+    byte[] compress(byte[] bytes);
+
+    /**
+     * 解压字节数组。
+     *
+     * @param bytes          压缩后的字节数组
+     * @param originalLength 原始字节数组长度
+     * @return 原始字节数组
+     */
+    byte[] decompress(byte[] bytes, int originalLength);
+}
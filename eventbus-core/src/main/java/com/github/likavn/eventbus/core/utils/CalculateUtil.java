@@ -17,8 +17,6 @@ package com.github.likavn.eventbus.core.utils;
 
 import lombok.experimental.UtilityClass;
 
-import java.util.Stack;
-
 /**
  * 计算工具
  *
@@ -39,102 +37,174 @@ public class CalculateUtil {
     }
 
     /**
-     * 解析表达式的函数（这里简化实现，只处理加减乘除和括号）
+     * 解析表达式的函数（只处理加减乘除和括号）
      *
      * @param expression exp
      * @return double
      */
-    @SuppressWarnings("all")
     public double evalExpression(String expression) {
-        expression = trim(expression);
-        Stack<Double> values = new Stack<>();
-        Stack<Character> operators = new Stack<>();
-        char ch;
-        char[] chars = expression.toCharArray();
-        for (int i = 0; i < chars.length; ) {
-            ch = chars[i];
-            if (Character.isDigit(ch)) {
-                // 处理数字（这里简化处理，假设数字之间不会有空格）
-                StringBuilder numBuilder = new StringBuilder();
-                do {
-                    numBuilder.append(chars[i++]);
-                } while (i < chars.length && (Character.isDigit(chars[i]) || chars[i] == '.'));
-                double num = Double.parseDouble(numBuilder.toString());
-                values.push(num);
-            } else {
-                if (ch == '+' || ch == '-' || ch == '*' || ch == '/') {
-                    // 处理运算符（考虑优先级）
-                    while (!operators.isEmpty() && hasPrecedence(ch, operators.peek())) {
-                        char op = operators.pop();
-                        double val2 = values.pop();
-                        double val1 = values.pop();
-                        values.push(applyOp(val1, val2, op));
-                    }
-                    operators.push(ch);
-                } else if (ch == '(') {
-                    // 处理左括号，直接入栈
-                    operators.push(ch);
-                } else if (ch == ')') {
-                    // 处理右括号，计算括号内的表达式
-                    while (!operators.isEmpty() && operators.peek() != '(') {
-                        char op = operators.pop();
-                        double val2 = values.pop();
-                        double val1 = values.pop();
-                        values.push(applyOp(val1, val2, op));
-                    }
-                    // 弹出左括号
-                    operators.pop();
-                }
-                i++;
-            }
-        }
+        return compile(expression).eval(0, 0, 0);
+    }
 
-        // 处理剩余的操作符
-        while (!operators.isEmpty()) {
-            char op = operators.pop();
-            double val2 = values.pop();
-            double val1 = values.pop();
-            values.push(applyOp(val1, val2, op));
+    /**
+     * 编译表达式为语法树，编译后可重复计算，计算过程不产生对象分配
+     * 支持加减乘除、括号、负号及变量，变量按传入顺序占用计算时的参数位置，最多支持3个变量
+     *
+     * @param expression exp
+     * @param variables  变量名，如：$count
+     * @return 编译后的表达式
+     */
+    public Expression compile(String expression, String... variables) {
+        if (variables.length > MAX_VARIABLES) {
+            throw new IllegalArgumentException("变量数量不能大于" + MAX_VARIABLES);
+        }
+        Parser parser = new Parser(trim(expression), variables);
+        Expression exp = parser.parseExpr();
+        if (parser.pos != parser.chars.length) {
+            throw new IllegalArgumentException("表达式格式错误：" + expression);
         }
+        return exp;
+    }
+
+    /**
+     * 最大变量数
+     */
+    private static final int MAX_VARIABLES = 3;
 
-        // 栈顶元素即为最终结果
-        return values.pop();
+    /**
+     * 编译后的表达式
+     */
+    @FunctionalInterface
+    public interface Expression {
+        /**
+         * 计算表达式
+         *
+         * @param v0 第1个变量值
+         * @param v1 第2个变量值
+         * @param v2 第3个变量值
+         * @return 计算结果
+         */
+        double eval(double v0, double v1, double v2);
     }
 
     /**
-     * 判断运算符优先级
+     * 递归下降解析器
+     * expr := term (('+'|'-') term)*
+     * term := factor (('*'|'/') factor)*
+     * factor := number | variable | '(' expr ')' | '-' factor
      */
-    @SuppressWarnings("all")
-    private boolean hasPrecedence(char op1, char op2) {
-        if (op1 == '*' || op1 == '/') {
-            return false;
+    private static class Parser {
+        private final char[] chars;
+        private final String[] variables;
+        private int pos;
+
+        private Parser(String expression, String[] variables) {
+            this.chars = expression.toCharArray();
+            this.variables = variables;
+        }
+
+        private Expression parseExpr() {
+            Expression left = parseTerm();
+            while (pos < chars.length && (chars[pos] == '+' || chars[pos] == '-')) {
+                char op = chars[pos++];
+                Expression l = left;
+                Expression r = parseTerm();
+                left = op == '+' ? (v0, v1, v2) -> l.eval(v0, v1, v2) + r.eval(v0, v1, v2)
+                        : (v0, v1, v2) -> l.eval(v0, v1, v2) - r.eval(v0, v1, v2);
+            }
+            return left;
+        }
+
+        private Expression parseTerm() {
+            Expression left = parseFactor();
+            while (pos < chars.length && (chars[pos] == '*' || chars[pos] == '/')) {
+                char op = chars[pos++];
+                Expression l = left;
+                Expression r = parseFactor();
+                left = op == '*' ? (v0, v1, v2) -> l.eval(v0, v1, v2) * r.eval(v0, v1, v2)
+                        : (v0, v1, v2) -> divide(l.eval(v0, v1, v2), r.eval(v0, v1, v2));
+            }
+            return left;
+        }
+
+        private Expression parseFactor() {
+            if (pos >= chars.length) {
+                throw new IllegalArgumentException("表达式不完整");
+            }
+            char ch = chars[pos];
+            if (ch == '(') {
+                pos++;
+                Expression exp = parseExpr();
+                if (pos >= chars.length || chars[pos] != ')') {
+                    throw new IllegalArgumentException("括号不匹配");
+                }
+                pos++;
+                return exp;
+            }
+            if (ch == '-') {
+                pos++;
+                Expression exp = parseFactor();
+                return (v0, v1, v2) -> -exp.eval(v0, v1, v2);
+            }
+            if (Character.isDigit(ch)) {
+                int start = pos;
+                while (pos < chars.length && (Character.isDigit(chars[pos]) || chars[pos] == '.')) {
+                    pos++;
+                }
+                double num = Double.parseDouble(new String(chars, start, pos - start));
+                return (v0, v1, v2) -> num;
+            }
+            return parseVariable();
         }
-        if (op2 == '+' || op2 == '-') {
-            return false;
+
+        /**
+         * 按最长匹配解析变量
+         */
+        private Expression parseVariable() {
+            int index = -1;
+            int length = 0;
+            for (int i = 0; i < variables.length; i++) {
+                String variable = variables[i];
+                if (variable.length() > length && startsWith(variable)) {
+                    index = i;
+                    length = variable.length();
+                }
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("无法识别的字符：" + chars[pos]);
+            }
+            pos += length;
+            switch (index) {
+                case 0:
+                    return (v0, v1, v2) -> v0;
+                case 1:
+                    return (v0, v1, v2) -> v1;
+                default:
+                    return (v0, v1, v2) -> v2;
+            }
+        }
+
+        private boolean startsWith(String variable) {
+            if (pos + variable.length() > chars.length) {
+                return false;
+            }
+            for (int i = 0; i < variable.length(); i++) {
+                if (chars[pos + i] != variable.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
         }
-        return true;
     }
 
     /**
-     * 应用运算
+     * 除法运算
      */
-    private double applyOp(double a, double b, char op) {
-        switch (op) {
-            case '+':
-                return a + b;
-            case '-':
-                return a - b;
-            case '*':
-                return a * b;
-            case '/':
-                if (b == 0) {
-                    throw new IllegalArgumentException("除数不能为0");
-                }
-                return a / b;
-            default:
-                break;
+    private double divide(double a, double b) {
+        if (b == 0) {
+            throw new IllegalArgumentException("除数不能为0");
         }
-        return 0;
+        return a / b;
     }
 
     /**
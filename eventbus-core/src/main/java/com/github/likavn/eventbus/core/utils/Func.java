@@ -21,6 +21,11 @@ import com.github.likavn.eventbus.core.api.MsgListener;
 import com.github.likavn.eventbus.core.exception.EventBusException;
 import com.github.likavn.eventbus.core.metadata.data.MsgBody;
 import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.support.IntervalExpression;
+import com.github.likavn.eventbus.core.support.CompressFrame;
+import com.github.likavn.eventbus.core.support.JsonCodec;
+import com.github.likavn.eventbus.core.support.spi.ICodec;
+import com.github.likavn.eventbus.core.support.spi.ICompressor;
 import com.github.likavn.eventbus.core.support.spi.IJson;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
@@ -57,6 +62,15 @@ public final class Func {
     private static final List<String> PROXY_CLASS_NAMES = new ArrayList<>(4);
 
     private static final IJson JSON;
+
+    /**
+     * 消息编解码器，key为编码结果的首个字节（魔数）
+     */
+    private static final Map<Byte, ICodec> CODECS = new HashMap<>(4);
+    /**
+     * 可用的消息体压缩算法，key为压缩算法ID
+     */
+    private static final Map<Byte, ICompressor> COMPRESSORS = new HashMap<>(4);
     /**
      * 用于缓存本地非回环IPv4地址，避免重复枚举网络接口
      */
@@ -88,28 +102,176 @@ public final class Func {
             log.error("json serialization tool is required!");
             System.exit(1);
         }
+
+        // load codec
+        for (ICodec codec : ServiceLoader.load(ICodec.class)) {
+            ICodec exist = CODECS.putIfAbsent(codec.magic(), codec);
+            if (null != exist && !exist.name().equals(codec.name())) {
+                log.error("codec magic conflict: {} and {}", exist.name(), codec.name());
+            }
+            if (CompressFrame.MAGIC == codec.magic()) {
+                log.error("codec magic conflict with compress frame: {}", codec.name());
+            }
+        }
+
+        // load compressor
+        for (ICompressor compressor : ServiceLoader.load(ICompressor.class)) {
+            if (!compressor.active()) {
+                continue;
+            }
+            ICompressor exist = COMPRESSORS.putIfAbsent(compressor.id(), compressor);
+            if (null != exist && !exist.name().equals(compressor.name())) {
+                log.error("compressor id conflict: {} and {}", exist.name(), compressor.name());
+            }
+        }
     }
 
     /**
-     * jsonStr to request bean
+     * 根据名称获取消息编解码器
+     *
+     * @param name 编解码器名称
+     * @return 编解码器
+     */
+    public ICodec getCodec(String name) {
+        for (ICodec codec : CODECS.values()) {
+            if (codec.name().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new EventBusException("codec not found: " + name);
+    }
+
+    /**
+     * 根据名称获取消息体压缩算法
+     *
+     * @param name 压缩算法名称
+     * @return 压缩算法
+     */
+    public ICompressor getCompressor(String name) {
+        for (ICompressor compressor : COMPRESSORS.values()) {
+            if (compressor.name().equalsIgnoreCase(name)) {
+                return compressor;
+            }
+        }
+        throw new EventBusException("compressor not found or its dependency is missing: " + name);
+    }
+
+    /**
+     * 根据压缩帧中的压缩算法ID获取消息体压缩算法
+     *
+     * @param id 压缩算法ID
+     * @return 压缩算法
+     */
+    public ICompressor getCompressor(byte id) {
+        ICompressor compressor = COMPRESSORS.get(id);
+        if (null == compressor) {
+            throw new EventBusException("compressor not found or its dependency is missing, id: " + id);
+        }
+        return compressor;
+    }
+
+    /**
+     * 根据首个字节获取非json的编解码器，不存在时返回null
+     *
+     * @param magic 首个字节
+     * @return 编解码器
+     */
+    private ICodec getBinaryCodec(byte magic) {
+        ICodec codec = CODECS.get(magic);
+        return null == codec || JsonCodec.NAME.equals(codec.name()) ? null : codec;
+    }
+
+    /**
+     * bytes to request bean，根据首个字节选择编解码器，默认json
      *
      * @param requestBytes bytes
      * @return bean
      */
     @SuppressWarnings("all")
     public Request convertByBytes(byte[] requestBytes) {
-        return convertByJson(new String(requestBytes, StandardCharsets.UTF_8));
+        return convertByBytes(requestBytes, Request.class);
+    }
+
+    /**
+     * bytes to request bean，json编码时按指定的消息类型一次解析消息及消息体
+     * <p>
+     * 字符串类型的消息引擎中以ISO-8859-1字符串保存的二进制消息，按UTF-8读取为字节时首个字节为0xC2或0xC3，
+     * 此时还原为字符串后按{@link #convertByJson(String, Type)}解析；压缩帧先解压再解析
+     *
+     * @param requestBytes bytes
+     * @param requestType  消息类型，如{@code Request<T>}
+     * @return bean
+     */
+    @SuppressWarnings("all")
+    public Request convertByBytes(byte[] requestBytes, Type requestType) {
+        if (CompressFrame.isFrame(requestBytes)) {
+            return convertByBytes(CompressFrame.unwrap(requestBytes), requestType);
+        }
+        ICodec codec = requestBytes.length > 0 ? getBinaryCodec(requestBytes[0]) : null;
+        if (null != codec) {
+            return codec.decode(requestBytes);
+        }
+        String js = new String(requestBytes, StandardCharsets.UTF_8);
+        if (requestBytes.length > 0 && (requestBytes[0] == (byte) 0xC2 || requestBytes[0] == (byte) 0xC3)) {
+            return convertByJson(js, requestType);
+        }
+        return parseRequest(js, requestType);
     }
 
     /**
      * jsonStr to request bean
+     * <p>
+     * 字符串类型的消息引擎（如redis）中，二进制编码的消息以ISO-8859-1字符串保存，首个字符为编解码器魔数，
+     * 压缩后的消息同样以ISO-8859-1字符串保存，首个字符为压缩帧魔数
      *
      * @param js js
      * @return bean
      */
     @SuppressWarnings("all")
     public Request convertByJson(String js) {
-        return parseObject(js, Request.class);
+        return convertByJson(js, Request.class);
+    }
+
+    /**
+     * jsonStr to request bean，json编码时按指定的消息类型一次解析消息及消息体
+     *
+     * @param js          js
+     * @param requestType 消息类型，如{@code Request<T>}
+     * @return bean
+     */
+    @SuppressWarnings("all")
+    public Request convertByJson(String js, Type requestType) {
+        if (!isEmpty((CharSequence) js)) {
+            char first = js.charAt(0);
+            if (first == (CompressFrame.MAGIC & 0xFF)) {
+                return convertByBytes(js.getBytes(StandardCharsets.ISO_8859_1), requestType);
+            }
+            ICodec codec = first <= 0xFF ? getBinaryCodec((byte) first) : null;
+            if (null != codec) {
+                return codec.decode(js.getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+        return parseRequest(js, requestType);
+    }
+
+    /**
+     * 按指定的消息类型解析json消息，消息体与目标类型不匹配时退回为不指定消息体类型解析，
+     * 由投递时的消息体解析抛出异常，进入失败重试流程
+     *
+     * @param js          js
+     * @param requestType 消息类型
+     * @return bean
+     */
+    @SuppressWarnings("all")
+    private Request parseRequest(String js, Type requestType) {
+        if (Request.class != requestType) {
+            try {
+                return JSON.parseObject(js, requestType);
+            } catch (Exception e) {
+                log.debug("parse request by type {} error", requestType, e);
+            }
+        }
+        return JSON.parseObject(js, Request.class);
     }
 
     /**
@@ -518,18 +680,11 @@ public final class Func {
      * @param interval 间隔时间表达式
      */
     public void isValidIntervalTimeExpression(String interval) {
-        if (Func.isEmpty(interval)) {
-            return;
-        }
         try {
-            interval = interval.replace("$count", "1")
-                    .replace("$deliverCount", "1")
-                    .replace("$intervalTime", "1");
-            double v = CalculateUtil.evalExpression(interval);
-            Assert.isTrue(v > 0, "interval must be greater than 0");
-        } catch (Exception e) {
+            IntervalExpression.of(interval);
+        } catch (EventBusException e) {
             log.error("isValidIntervalTimeExpression.error", e);
-            throw new EventBusException("interval must be a valid expression", e);
+            throw e;
         }
     }
 }
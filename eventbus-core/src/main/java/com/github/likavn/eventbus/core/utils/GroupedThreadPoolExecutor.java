@@ -19,16 +19,26 @@ import com.github.likavn.eventbus.core.exception.EventBusException;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.*;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 /**
  * 分组线程池
  * <p>
  * 多分组任务共享线程池
+ * <p>
+ * 每个分组使用独立的信号量控制并发数，空闲线程存放于无锁栈中，任务提交及完成均不经过全局锁；
+ * 分组并发数已满时提交线程阻塞，直到该分组有任务完成时立即被唤醒
+ * <p>
+ * 线程工厂为虚拟线程工厂时，不复用线程，每个任务由新的虚拟线程执行，分组并发数仅作为同时执行任务数的上限
  *
  * @author likavn
  * @date 2024/01/01
@@ -36,25 +46,21 @@ import java.util.function.Consumer;
 @Slf4j
 public class GroupedThreadPoolExecutor {
     /**
-     * 线程池中空闲的线程队列，用于存放空闲的线程对象
+     * 空闲线程栈，后进先出，使最近运行过的线程优先被复用，长时间空闲的线程得以超时回收
      */
-    private final Queue<WorkerThread> freePools = new ArrayDeque<>();
+    private final Deque<WorkerThread> idleWorkers = new ConcurrentLinkedDeque<>();
     /**
-     * 线程池中正在使用的线程队列，用于存放正在使用的线程对象
+     * 线程池中所有存活的线程
      */
-    private final Set<WorkerThread> busyPools = new HashSet<>();
+    private final Set<WorkerThread> workers = ConcurrentHashMap.newKeySet();
     /**
-     * 存储每个任务的状态信息，包括剩余执行次数等
+     * 存储每个分组的并发许可
      */
     private final Map<String, State> stateMap = new ConcurrentHashMap<>();
     /**
-     * 主锁，用于保护核心线程池和空闲线程队列的并发访问
-     */
-    private final ReentrantLock mainLock = new ReentrantLock();
-    /**
-     * 当前核心线程池大小，用于统计核心线程池中正在使用的线程数量
+     * 当前线程数
      */
-    private final AtomicInteger currentCorePoolSize = new AtomicInteger(0);
+    private final AtomicInteger workerCount = new AtomicInteger(0);
 
     private final int corePoolSize;
     private final long keepAliveTimeMillis;
@@ -64,13 +70,13 @@ public class GroupedThreadPoolExecutor {
      * 执行前的回调函数，用于在任务执行前对线程进行一些初始化操作，如设置线程名称等
      */
     @Setter
-    private Consumer<WorkerThread> beforeConsumer;
+    private Consumer<GTask> beforeConsumer;
 
     /**
      * 执行后的回调函数，用于在任务执行结束后对线程进行一些收尾工作，如清理线程名称等
      */
     @Setter
-    private Consumer<WorkerThread> afterConsumer;
+    private Consumer<GTask> afterConsumer;
 
     public GroupedThreadPoolExecutor(int corePoolSize, long keepAliveTimeMillis, NamedThreadFactory threadFactory) {
         this.corePoolSize = corePoolSize;
@@ -80,99 +86,145 @@ public class GroupedThreadPoolExecutor {
 
     /**
      * 执行给定的任务并返回任务的执行状态
-     * 此方法首先验证任务是否有效，然后在适当的线程上执行任务，并检查任务执行后的剩余次数
+     * 此方法首先验证任务是否有效，然后获取任务分组的并发许可（分组并发数已满时阻塞等待），最后交由空闲线程执行
      *
      * @param task 要执行的任务对象，不能为空
-     * @return 返回任务执行后的剩余次数是否大于0
+     * @return 返回任务提交后分组剩余的并发许可是否大于0
      */
     public boolean execute(GTask task) {
         // 验证任务是否有效，这是执行任务前的必要检查
         task.isValid();
-        // 获取适当的线程来执行任务
-        takeThread(task).execute();
-        // 检查任务执行后的剩余次数是否大于0，这是判断任务执行状态的重要依据
-        return getState(task).getLeftCount() > 0;
+        State state = acquire(task);
+        if (threadFactory.isVirtual()) {
+            startVirtualThread(task, state);
+            return state.leftCount() > 0;
+        }
+        WorkerThread worker;
+        try {
+            worker = takeThread();
+        } catch (Exception e) {
+            state.release();
+            throw new EventBusException(e);
+        }
+        worker.execute(task, state);
+        // 检查任务提交后的剩余许可是否大于0，这是判断任务执行状态的重要依据
+        return state.leftCount() > 0;
     }
 
     /**
-     * 从空闲线程池中获取一个线程来执行任务
-     * 首先获取一个状态对象，然后根据状态对象获取一个适当的线程来执行任务
+     * 获取任务分组的一个并发许可，分组并发数已满时阻塞，直到有任务完成释放许可
      *
      * @param task 要执行的任务对象，不能为空
-     * @return 返回一个适当的线程对象
+     * @return 任务分组的状态对象
      */
-    private WorkerThread takeThread(GTask task) {
-        State state = blockState(task);
-        mainLock.lock();
-        WorkerThread workThread = freePools.poll();
+    private State acquire(GTask task) {
+        State state = getState(task);
         try {
-            if (null == workThread) {
-                boolean isCore = currentCorePoolSize.get() < corePoolSize;
-                workThread = addWorkThread(isCore);
-                currentCorePoolSize.incrementAndGet();
-            }
-            busyPools.add(workThread);
-        } catch (Exception e) {
-            state.increment();
+            state.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new EventBusException(e);
-        } finally {
-            mainLock.unlock();
         }
-        workThread.addTask(task);
-        return workThread;
+        return state;
     }
 
     /**
-     * 阻塞等待状态对象的剩余次数变为大于0，然后返回状态对象
+     * 创建新的虚拟线程执行任务，任务完成后释放分组许可
      *
-     * @param task 要执行的任务对象，不能为空
-     * @return 返回一个状态对象，用于后续任务执行
+     * @param task  要执行的任务对象
+     * @param state 任务分组的状态对象
      */
-    @SuppressWarnings("all")
-    private State blockState(GTask task) {
-        State state = getState(task);
-        // 按分组进行分段式锁控制
-        state.lock();
+    private void startVirtualThread(GTask task, State state) {
+        Runnable target = task.getTarget();
+        Runnable released = task.getReleased();
         try {
-            while (state.getLeftCount() < 1) {
-                synchronized (state.update) {
-                    state.update.wait(1000);
+            threadFactory.newThread(() -> {
+                try {
+                    runTarget(task, target);
+                } finally {
+                    state.release();
+                    runReleased(released);
                 }
-            }
-            state.decrement();
-        } catch (InterruptedException e) {
+            }).start();
+        } catch (Exception e) {
+            state.release();
             throw new EventBusException(e);
+        }
+    }
+
+    /**
+     * 执行任务目标，并在执行前后调用回调函数
+     *
+     * @param task   任务对象
+     * @param target 任务提交时的执行目标
+     */
+    private void runTarget(GTask task, Runnable target) {
+        Throwable throwable = null;
+        try {
+            beforeExecute(task);
+            target.run();
+        } catch (Throwable e) {
+            // 捕获所有异常，避免工作线程退出后仍留在空闲栈中
+            throwable = e;
+            log.error("GroupedThreadPoolExecutor task run error", e);
         } finally {
-            state.unlock();
+            afterExecute(task, throwable);
+        }
+    }
+
+    /**
+     * 执行分组许可释放后的回调
+     *
+     * @param released 回调
+     */
+    private void runReleased(Runnable released) {
+        if (null == released) {
+            return;
+        }
+        try {
+            released.run();
+        } catch (Throwable e) {
+            log.error("GroupedThreadPoolExecutor task released callback error", e);
+        }
+    }
+
+    /**
+     * 从空闲线程栈中取出一个线程，无空闲线程时创建新线程
+     *
+     * @return 返回一个适当的线程对象
+     */
+    private WorkerThread takeThread() {
+        WorkerThread worker;
+        while (null != (worker = idleWorkers.pollFirst())) {
+            // 跳过已关闭或已退出的线程
+            if (!worker.shutdown && worker.isAlive()) {
+                return worker;
+            }
+        }
+        boolean isCore = workerCount.incrementAndGet() <= corePoolSize;
+        try {
+            return addWorkThread(isCore);
+        } catch (RuntimeException | Error e) {
+            workerCount.decrementAndGet();
+            throw e;
         }
-        return state;
     }
 
     /**
      * 在任务执行前调用，用于执行前的回调函数
      */
-    public void beforeExecute(WorkerThread worker) {
+    public void beforeExecute(GTask task) {
         if (null != beforeConsumer) {
-            beforeConsumer.accept(worker);
+            beforeConsumer.accept(task);
         }
     }
 
     /**
      * 在任务执行结束后调用，用于执行后的回调函数
      */
-    public void afterExecute(WorkerThread worker, Throwable t) {
-        mainLock.lock();
-        try {
-            freePools.add(worker);
-            busyPools.remove(worker);
-            State state = getState(worker.getTask());
-            state.increment();
-            if (null != afterConsumer) {
-                afterConsumer.accept(worker);
-            }
-            worker.clear();
-        } finally {
-            mainLock.unlock();
+    public void afterExecute(GTask task, Throwable t) {
+        if (null != afterConsumer) {
+            afterConsumer.accept(task);
         }
     }
 
@@ -183,39 +235,26 @@ public class GroupedThreadPoolExecutor {
      * @return 创建的WorkerThread对象
      */
     private WorkerThread addWorkThread(boolean core) {
-        return new WorkerThread(threadFactory, core);
+        WorkerThread worker = new WorkerThread(threadFactory, core);
+        workers.add(worker);
+        worker.start();
+        return worker;
     }
 
-
     /**
      * 清空所有线程池
-     * 主要包括空闲池和忙碌池，并清除状态映射
+     * 关闭、中断并移除所有线程，并清除状态映射
      */
     public void clear() {
-        mainLock.lock();
-        try {
-            // 清空空闲池和忙碌池中的所有线程，并清除状态映射
-            clearThreadsIterator(freePools.iterator());
-            clearThreadsIterator(busyPools.iterator());
-            stateMap.clear();
-            currentCorePoolSize.set(0);
-            threadFactory.clear();
-        } finally {
-            mainLock.unlock();
-        }
-    }
-
-    /**
-     * 中断并移除迭代器中的所有线程
-     *
-     * @param iterator 需要清理的线程迭代器
-     */
-    private void clearThreadsIterator(Iterator<WorkerThread> iterator) {
-        while (iterator.hasNext()) {
-            WorkerThread thread = iterator.next();
-            thread.interrupt();
-            iterator.remove();
+        for (WorkerThread worker : workers) {
+            worker.shutdown = true;
+            worker.interrupt();
         }
+        workers.clear();
+        idleWorkers.clear();
+        stateMap.clear();
+        workerCount.set(0);
+        threadFactory.clear();
     }
 
     /**
@@ -226,19 +265,9 @@ public class GroupedThreadPoolExecutor {
      * @return 返回与任务关联的状态对象
      */
     private State getState(GTask task) {
-        // 从状态映射中获取与任务名称关联的状态
         State state = stateMap.get(task.getName());
         if (null == state) {
-            // 如果没有找到关联的状态，创建一个新的状态对象
-            state = new State();
-            state.setGroupName(task.getName());
-            state.setConcurrency(task.getConcurrency());
-            state.setLeftCount(task.getConcurrency());
-            // 使用 putIfAbsent 方法实现线程安全的插入操作
-            state = stateMap.putIfAbsent(task.getName(), state);
-            if (state == null) {
-                state = stateMap.get(task.getName());
-            }
+            state = stateMap.computeIfAbsent(task.getName(), name -> new State(name, task.getConcurrency()));
         }
         return state;
     }
@@ -260,6 +289,8 @@ public class GroupedThreadPoolExecutor {
         private Object data;
         // 任务运行目标，真正的任务执行逻辑
         private Runnable target;
+        // 任务执行完成并释放分组许可后的回调，回调中提交同一分组的任务时不会因许可未释放而阻塞
+        private Runnable released;
 
         /**
          * 设置任务运行目标
@@ -298,64 +329,46 @@ public class GroupedThreadPoolExecutor {
     }
 
     /**
-     * State类用于表示某个状态或资源的使用情况，提供并发访问的机制。
-     * 该类通过注解自动生成getter和setter方法（@Data），无参构造函数（@NoArgsConstructor），
-     * 以及包含所有成员变量的构造函数（@AllArgsConstructor）。
+     * State类表示某个分组的并发许可，分组内同时执行的任务数不超过并发数
      */
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
+    @Getter
     private static class State {
-        // 定义一个锁对象，用于控制并发访问，确保线程安全。
-        private final ReentrantLock lock = new ReentrantLock();
-
         // groupName表示资源所属的组名。
-        private String groupName;
+        private final String groupName;
 
         // concurrency表示并发数，即允许同时访问资源的线程数量。
-        private int concurrency;
+        private final int concurrency;
 
-        // leftCount用于记录剩余的可用资源数量，采用AtomicInteger保证线程安全。
-        private int leftCount;
+        // 剩余的并发许可，许可释放时立即唤醒等待的提交线程
+        private final Semaphore permits;
 
-        final Object update = new Object();
+        State(String groupName, int concurrency) {
+            this.groupName = groupName;
+            this.concurrency = concurrency;
+            this.permits = new Semaphore(concurrency);
+        }
 
         /**
-         * 获取当前剩余可用资源的数量。
+         * 获取当前剩余可用许可的数量。
          *
-         * @return 剩余资源数量。
+         * @return 剩余许可数量。
          */
         public int leftCount() {
-            synchronized (update) {
-                return leftCount;
-            }
+            return permits.availablePermits();
         }
 
         /**
-         * 增加一个可用资源，采用原子操作保证线程安全。
+         * 获取一个许可，无可用许可时阻塞等待。
          */
-        public void increment() {
-            synchronized (update) {
-                leftCount++;
-                update.notifyAll();
-            }
+        public void acquire() throws InterruptedException {
+            permits.acquire();
         }
 
         /**
-         * 减少一个可用资源，采用原子操作保证线程安全。
+         * 释放一个许可。
          */
-        public void decrement() {
-            synchronized (update) {
-                leftCount--;
-            }
-        }
-
-        public void lock() {
-            lock.lock();
-        }
-
-        public void unlock() {
-            lock.unlock();
+        public void release() {
+            permits.release();
         }
     }
 
@@ -363,6 +376,8 @@ public class GroupedThreadPoolExecutor {
      * WorkerThread 类继承自 Thread，用于处理 GTask 任务的线程
      * 它可以根据是否为核心线程来决定其生命周期
      * <p>
+     * 任务通过volatile字段移交给线程，并使用{@link LockSupport#unpark(Thread)}唤醒，先唤醒后等待时线程不会阻塞，不会丢失唤醒信号
+     * <p>
      * 注：此处不能重写hashCode和equals方法，否则会导致线程池的线程管理机制失效
      */
     @EqualsAndHashCode(onlyExplicitlyIncluded = true, callSuper = false)
@@ -379,13 +394,19 @@ public class GroupedThreadPoolExecutor {
 
         // 当前线程正在处理的任务
         @Getter
-        private GTask task;
+        private volatile GTask task;
+
+        // 当前任务提交时的执行目标，避免同一任务对象被再次提交时修改执行目标
+        private Runnable target;
+
+        // 当前任务所属分组的状态
+        private GroupedThreadPoolExecutor.State state;
 
         // 记录上次运行任务的时间，用于判断线程是否超时
         private long lastRunTimeMillis;
 
-        // 监控对象，用于线程同步
-        private final Object monitor = new Object();
+        // 线程是否已关闭，仅由线程池清空时设置，任务中的中断不会使线程退出
+        private volatile boolean shutdown = false;
 
         /**
          * 构造函数，初始化 WorkerThread
@@ -399,93 +420,88 @@ public class GroupedThreadPoolExecutor {
             this.number = Integer.parseInt(this.id.replace(factory.getPrefix(), ""));
             this.core = core;
             this.lastRunTimeMillis = System.currentTimeMillis();
-            start();
         }
 
         /**
-         * 为线程添加任务
+         * 移交任务并唤醒线程执行
          *
-         * @param task 待执行的任务
+         * @param task  待执行的任务
+         * @param state 任务所属分组的状态
          */
-        private void addTask(GTask task) {
+        private void execute(GTask task, GroupedThreadPoolExecutor.State state) {
+            this.target = task.getTarget();
+            this.state = state;
+            // volatile写，保证target、state对工作线程可见
             this.task = task;
+            LockSupport.unpark(this);
         }
 
         /**
          * 清除当前线程的任务
          */
         public void clear() {
+            this.target = null;
+            this.state = null;
             this.task = null;
         }
 
         /**
-         * 执行当前线程的任务
-         */
-        public void execute() {
-            synchronized (monitor) {
-                monitor.notifyAll();
-            }
-        }
-
-        /**
-         * 线程的运行方法，不断循环直到被中断
+         * 线程的运行方法，不断循环直到线程池清空或超时回收，已移交的任务执行完成后才退出
          */
         @Override
         public void run() {
-            while (!isInterrupted()) {
-                try {
-                    runTask();
-                    synchronized (monitor) {
-                        monitor.wait(keepAliveTimeMillis);
+            try {
+                while (true) {
+                    if (null != task) {
+                        runTask();
+                    } else if (shutdown || awaitTask()) {
+                        return;
                     }
-                } catch (InterruptedException e) {
-                    interrupt();
                 }
+            } finally {
+                workers.remove(this);
             }
         }
 
         /**
-         * 运行任务的方法，处理任务并记录运行时间
+         * 等待任务移交，非核心线程空闲超过存活时长时退出
+         *
+         * @return 线程是否退出
          */
-        private synchronized void runTask() {
-            if (null == task) {
-                if (!core) {
-                    workerExit();
-                }
-                return;
+        private boolean awaitTask() {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(keepAliveTimeMillis));
+            // 清除中断状态，避免残留的中断使等待立即返回
+            Thread.interrupted();
+            if (null != task || shutdown || core || System.currentTimeMillis() - lastRunTimeMillis < keepAliveTimeMillis) {
+                return false;
             }
-            Exception throwable = null;
-            try {
-                beforeExecute(this);
-                task.run();
-                this.lastRunTimeMillis = System.currentTimeMillis();
-            } catch (Exception e) {
-                throwable = e;
-            } finally {
-                afterExecute(this, throwable);
+            // 从空闲栈中移除成功才可退出，移除失败表示线程已被取出，任务即将移交
+            if (!idleWorkers.removeFirstOccurrence(this)) {
+                return false;
             }
+            workerCount.decrementAndGet();
+            threadFactory.decrement(number);
+            return true;
         }
 
         /**
-         * 判断是否退出线程的方法，根据上次运行时间和保持时间对比决定
+         * 运行任务的方法，处理任务并记录运行时间，完成后清除任务留下的中断状态，
+         * 线程未关闭时放回空闲栈，再释放分组许可，最后执行许可释放后的回调
          */
-        private void workerExit() {
-            if (System.currentTimeMillis() - this.lastRunTimeMillis < keepAliveTimeMillis) {
-                return;
-            }
-            // 主要用于从空闲池中移除线程
-            mainLock.lock();
+        private void runTask() {
+            GroupedThreadPoolExecutor.State current = this.state;
+            Runnable released = task.getReleased();
             try {
-                // 从空闲池中移除指定的工作线程
-                boolean removed = freePools.removeIf(t -> t.equals(this));
-                // 如果线程被成功移除，则减小核心线程池大小并中断线程
-                if (removed) {
-                    currentCorePoolSize.decrementAndGet();
-                    threadFactory.decrement(number);
-                    this.interrupt();
-                }
+                runTarget(task, target);
             } finally {
-                mainLock.unlock();
+                this.lastRunTimeMillis = System.currentTimeMillis();
+                clear();
+                Thread.interrupted();
+                if (!shutdown) {
+                    idleWorkers.offerFirst(this);
+                }
+                current.release();
+                runReleased(released);
             }
         }
     }
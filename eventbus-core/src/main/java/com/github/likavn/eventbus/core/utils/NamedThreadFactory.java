@@ -16,20 +16,62 @@
 package com.github.likavn.eventbus.core.utils;
 
 
+import com.github.likavn.eventbus.core.exception.EventBusException;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 带有前缀名称的线程工厂
+ * <p>
+ * 支持创建虚拟线程（JDK21+），项目以JDK8编译，虚拟线程的创建通过方法句柄调用{@code Thread.ofVirtual()}完成
  *
  * @author likavn
  * @date 2024/01/01
  */
+@Slf4j
 @Getter
 public class NamedThreadFactory implements ThreadFactory {
+    /**
+     * Thread.ofVirtual()
+     */
+    private static final MethodHandle OF_VIRTUAL;
+    /**
+     * Thread.Builder#name(String)
+     */
+    private static final MethodHandle BUILDER_NAME;
+    /**
+     * Thread.Builder#unstarted(Runnable)
+     */
+    private static final MethodHandle BUILDER_UNSTARTED;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle builderName = null;
+        MethodHandle builderUnstarted = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+            builderName = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class));
+            builderUnstarted = lookup.findVirtual(builderClass, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+            // JDK19、20未开启预览特性时调用会抛出异常
+            ofVirtual.invoke();
+        } catch (Throwable e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_UNSTARTED = builderUnstarted;
+    }
 
     /**
      * 线程名前缀
@@ -46,20 +88,72 @@ public class NamedThreadFactory implements ThreadFactory {
      */
     private final List<Integer> returnThreadNumbers = new LinkedList<>();
 
+    /**
+     * 是否创建虚拟线程
+     */
+    private final boolean virtual;
+
+    /**
+     * 虚拟线程编号，虚拟线程用完即弃，编号不回收
+     */
+    private final AtomicLong virtualThreadNumber = new AtomicLong();
+
     /**
      * 创建线程工厂
      *
      * @param prefix 线程名前缀
      */
     public NamedThreadFactory(String prefix) {
+        this(prefix, false);
+    }
+
+    /**
+     * 创建线程工厂
+     *
+     * @param prefix  线程名前缀
+     * @param virtual 是否创建虚拟线程，当前JDK不支持虚拟线程时创建平台线程
+     */
+    public NamedThreadFactory(String prefix, boolean virtual) {
         this.prefix = prefix;
+        if (virtual && !isVirtualSupported()) {
+            log.warn("Virtual threads require JDK21+, thread factory [{}] falls back to platform threads", prefix);
+            virtual = false;
+        }
+        this.virtual = virtual;
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     *
+     * @return 是否支持
+     */
+    public static boolean isVirtualSupported() {
+        return null != OF_VIRTUAL;
     }
 
     @Override
     public Thread newThread(Runnable r) {
+        if (virtual) {
+            return newVirtualThread(r);
+        }
         return new Thread(null, r, prefix + increment());
     }
 
+    /**
+     * 创建未启动的虚拟线程
+     *
+     * @param r 线程执行体
+     * @return 虚拟线程
+     */
+    private Thread newVirtualThread(Runnable r) {
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(), prefix + virtualThreadNumber.incrementAndGet());
+            return (Thread) BUILDER_UNSTARTED.invoke(builder, r);
+        } catch (Throwable e) {
+            throw new EventBusException(e);
+        }
+    }
+
     /**
      * 增加一个可用资源，采用原子操作保证线程安全。
      */
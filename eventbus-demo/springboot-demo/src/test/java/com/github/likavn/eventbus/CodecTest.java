@@ -0,0 +1,133 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus;
+
+import com.github.likavn.eventbus.core.exception.EventBusException;
+import com.github.likavn.eventbus.core.metadata.MsgType;
+import com.github.likavn.eventbus.core.metadata.data.Message;
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.support.Trigger;
+import com.github.likavn.eventbus.core.support.BinaryCodec;
+import com.github.likavn.eventbus.core.support.CompressFrame;
+import com.github.likavn.eventbus.core.support.GzipCompressor;
+import com.github.likavn.eventbus.core.support.JsonCodec;
+import com.github.likavn.eventbus.core.support.spi.ICodec;
+import com.github.likavn.eventbus.core.utils.Func;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 编解码测试
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class CodecTest {
+
+    @Test
+    public void binaryCodec() {
+        JSONProviderTest.TestBody body = new JSONProviderTest.TestBody();
+        body.setName("张三");
+        body.setAge(20);
+        Request<JSONProviderTest.TestBody> request = Request.<JSONProviderTest.TestBody>builder()
+                .serviceId("app").code("test").requestId("1").type(MsgType.DELAY).delayTime(10)
+                .retry(true).body(body).build();
+        request.addHeader("k", "v");
+
+        ICodec codec = new BinaryCodec();
+        byte[] bytes = codec.encode(request);
+        Request<?> decoded = Func.convertByBytes(bytes);
+        Assertions.assertEquals("app", decoded.getServiceId());
+        Assertions.assertEquals(MsgType.DELAY, decoded.getType());
+        Assertions.assertEquals(10, decoded.getDelayTime());
+        Assertions.assertTrue(decoded.isRetry());
+        Assertions.assertEquals("v", decoded.header("k"));
+        JSONProviderTest.TestBody decodedBody = Func.parseObject(decoded.getBody(), JSONProviderTest.TestBody.class);
+        Assertions.assertEquals("张三", decodedBody.getName());
+
+        // 字符串类型消息引擎
+        decoded = Func.convertByJson(new String(bytes, StandardCharsets.ISO_8859_1));
+        Assertions.assertEquals("1", decoded.getRequestId());
+        // 字符串类型消息引擎中保存的二进制消息按字节读取
+        decoded = Func.convertByBytes(new String(bytes, StandardCharsets.ISO_8859_1).getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals("1", decoded.getRequestId());
+
+        // json消息兼容
+        decoded = Func.convertByBytes(new JsonCodec().encode(request));
+        Assertions.assertEquals("test", decoded.getCode());
+    }
+
+    @Test
+    public void compressFrame() {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            name.append("likavn-").append(i % 10);
+        }
+        JSONProviderTest.TestBody body = new JSONProviderTest.TestBody();
+        body.setName(name.toString());
+        Request<JSONProviderTest.TestBody> request = Request.<JSONProviderTest.TestBody>builder()
+                .serviceId("app").code("test").requestId("1").body(body).build();
+
+        byte[] bytes = new JsonCodec().encode(request);
+        byte[] frame = CompressFrame.wrap(new GzipCompressor(), bytes);
+        Assertions.assertTrue(CompressFrame.isFrame(frame));
+        Assertions.assertTrue(frame.length < bytes.length);
+        Request<?> decoded = Func.convertByBytes(frame);
+        JSONProviderTest.TestBody decodedBody = Func.parseObject(decoded.getBody(), JSONProviderTest.TestBody.class);
+        Assertions.assertEquals(name.toString(), decodedBody.getName());
+
+        // 字符串类型消息引擎
+        decoded = Func.convertByJson(new String(frame, StandardCharsets.ISO_8859_1));
+        Assertions.assertEquals("1", decoded.getRequestId());
+        decoded = Func.convertByBytes(new String(frame, StandardCharsets.ISO_8859_1).getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals("1", decoded.getRequestId());
+    }
+
+    @Test
+    public void compressFrameLengthExceeded() {
+        byte[] frame = CompressFrame.wrap(new GzipCompressor(), new byte[8192]);
+        Assertions.assertTrue(CompressFrame.isFrame(frame));
+        // 声明的原始长度超过最大长度时拒绝解压
+        frame[2] = 0x7F;
+        Assertions.assertThrows(EventBusException.class, () -> CompressFrame.unwrap(frame));
+    }
+
+    @Test
+    public void typedJsonDecode() throws Exception {
+        JSONProviderTest.TestBody body = new JSONProviderTest.TestBody();
+        body.setName("likavn");
+        body.setAge(18);
+        String js = Request.builder().serviceId("app").code("test").body(body).build().toJson();
+
+        TestHandler handler = new TestHandler();
+        Trigger trigger = Trigger.of(handler, TestHandler.class.getMethod("onMessage", Message.class));
+        Request<?> request = Func.convertByJson(js, trigger.getRequestType());
+        // 消息体已解析为监听器的数据类型
+        Assertions.assertTrue(request.getBody() instanceof JSONProviderTest.TestBody);
+        trigger.invoke(request);
+        Assertions.assertEquals("likavn", handler.body.getName());
+    }
+
+    public static class TestHandler {
+        private JSONProviderTest.TestBody body;
+
+        public void onMessage(Message<JSONProviderTest.TestBody> message) {
+            this.body = message.getBody();
+        }
+    }
+}
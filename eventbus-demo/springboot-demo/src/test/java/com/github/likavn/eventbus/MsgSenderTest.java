@@ -16,8 +16,11 @@
 package com.github.likavn.eventbus;
 
 import com.github.likavn.eventbus.core.api.MsgSender;
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.data.SendResult;
 import com.github.likavn.eventbus.demo.EventBusApplication;
 import com.github.likavn.eventbus.demo.domain.TMsg;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -87,4 +90,19 @@ public class MsgSenderTest {
     public void testStringListener() {
         msgSender.send("testStringListener", "test");
     }
+
+    @Test
+    public void testSendBatch() {
+        List<Request<?>> requests = new ArrayList<>(10);
+        for (int i = 0; i < 10; i++) {
+            requests.add(Request.builder().code("testStringListener").body("test" + i).build());
+        }
+        msgSender.sendBatch(requests);
+    }
+
+    @Test
+    public void testSendAsync() {
+        SendResult result = msgSender.sendAsync(Request.builder().code("testStringListener").body("async").build()).join();
+        Assertions.assertNotNull(result.getRequestId());
+    }
 }
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * redis lua脚本测试，使用内存中的模拟redis命令执行脚本
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class RedisScriptTest {
+    /**
+     * 模拟redis stream命令，stream中的消息存放于entries，消费者组的pending消息存放于pending（{消息ID, 消费者, 空闲时间, 投递次数}），
+     * 执行XACK、XDEL后的消息ID分别记录于acked、deleted
+     */
+    private static final String MOCK_REDIS = "unpack = unpack or table.unpack\n"
+            + "acked = {}\n"
+            + "deleted = {}\n"
+            + "redis = {}\n"
+            + "function redis.call(cmd, key, ...)\n"
+            + "  local args = {...}\n"
+            + "  if cmd == 'XAUTOCLAIM' then\n"
+            + "    local ids = {}\n"
+            + "    for _, p in ipairs(pending) do ids[#ids + 1] = p[1] end\n"
+            + "    return {'0-0', ids}\n"
+            + "  elseif cmd == 'XPENDING' then\n"
+            + "    local res = {}\n"
+            + "    for _, p in ipairs(pending) do\n"
+            + "      if p[1] >= args[2] and #res < tonumber(args[4]) then res[#res + 1] = p end\n"
+            + "    end\n"
+            + "    return res\n"
+            + "  elseif cmd == 'XCLAIM' then\n"
+            + "    local ids = {}\n"
+            + "    for i = 4, #args - 1 do\n"
+            + "      for _, p in ipairs(pending) do\n"
+            + "        if p[1] == args[i] and p[3] >= tonumber(args[3]) then ids[#ids + 1] = p[1] end\n"
+            + "      end\n"
+            + "    end\n"
+            + "    return ids\n"
+            + "  elseif cmd == 'XRANGE' then\n"
+            + "    local fields = entries[args[1]]\n"
+            + "    if fields then return {{args[1], fields}} end\n"
+            + "    return {}\n"
+            + "  elseif cmd == 'XACK' then\n"
+            + "    for i = 2, #args do acked[#acked + 1] = args[i] end\n"
+            + "    return #args - 1\n"
+            + "  elseif cmd == 'XDEL' then\n"
+            + "    for i = 1, #args do deleted[#deleted + 1] = args[i] end\n"
+            + "    return #args\n"
+            + "  end\n"
+            + "  error('unsupported command ' .. cmd)\n"
+            + "end\n";
+
+    /**
+     * 模拟延时消息推送命令，zset成员存放于members，消息体存放于payloads，推送至stream的消息体记录于added，
+     * 单个命令的成员数超过1000时报错以模拟unpack限制
+     */
+    private static final String MOCK_DELAY_REDIS = "unpack = unpack or table.unpack\n"
+            + "added = {}\n"
+            + "removed = 0\n"
+            + "redis = {}\n"
+            + "function redis.call(cmd, key, ...)\n"
+            + "  local args = {...}\n"
+            + "  if #args > 1000 then error('too many results to unpack') end\n"
+            + "  if cmd == 'zrangebyscore' then\n"
+            + "    local res = {}\n"
+            + "    for i = 1, math.min(#members, tonumber(args[5])) do res[i] = members[i] end\n"
+            + "    return res\n"
+            + "  elseif cmd == 'hmget' then\n"
+            + "    local res = {}\n"
+            + "    for i = 1, #args do res[i] = payloads[args[i]] or false end\n"
+            + "    return res\n"
+            + "  elseif cmd == 'xadd' then\n"
+            + "    added[#added + 1] = args[#args]\n"
+            + "    return '1-0'\n"
+            + "  elseif cmd == 'zrem' then\n"
+            + "    removed = removed + #args\n"
+            + "    return #args\n"
+            + "  elseif cmd == 'hdel' then\n"
+            + "    return #args\n"
+            + "  elseif cmd == 'zrange' then\n"
+            + "    return {}\n"
+            + "  end\n"
+            + "  error('unsupported command ' .. cmd)\n"
+            + "end\n";
+
+    @Test
+    public void pushMsgStreamChunked() throws IOException {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.load(MOCK_DELAY_REDIS).call();
+        // 2500条到期消息，偶数序号的消息体存放于hash中，奇数序号为旧版本写入的数据
+        globals.load("members = {}\n"
+                + "payloads = {}\n"
+                + "for i = 1, 2500 do\n"
+                + "  members[i] = 'm' .. i\n"
+                + "  if i % 2 == 0 then payloads['m' .. i] = 'p' .. i end\n"
+                + "end").call();
+        globals.set("KEYS", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("delay"),
+                LuaValue.valueOf("stream"), LuaValue.valueOf("payload")}));
+        globals.set("ARGV", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("1000"), LuaValue.valueOf("2500"),
+                LuaValue.valueOf(""), LuaValue.valueOf("0")}));
+
+        globals.load(script("script/pushMsgStream.lua")).call();
+        LuaValue added = globals.get("added");
+        Assertions.assertEquals(2500, added.length());
+        Assertions.assertEquals("m1", added.get(1).tojstring());
+        Assertions.assertEquals("p2", added.get(2).tojstring());
+        Assertions.assertEquals("p2500", added.get(2500).tojstring());
+        Assertions.assertEquals(2500, globals.get("removed").toint());
+    }
+
+    @Test
+    public void zsetRemoveByScore() throws IOException {
+        Globals globals = JsePlatform.standardGlobals();
+        // zset成员分值存放于scores，消息体存放于payloads
+        globals.load("unpack = unpack or table.unpack\n"
+                + "scores = {m1 = '1729238400000', m2 = '1729238405000'}\n"
+                + "payloads = {m1 = 'a', m2 = 'b'}\n"
+                + "redis = {}\n"
+                + "function redis.call(cmd, key, member)\n"
+                + "  if cmd == 'ZSCORE' then return scores[member] or false end\n"
+                + "  if cmd == 'ZREM' then scores[member] = nil return 1 end\n"
+                + "  if cmd == 'HDEL' then payloads[member] = nil return 1 end\n"
+                + "  error('unsupported command ' .. cmd)\n"
+                + "end").call();
+        globals.set("KEYS", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("delay"), LuaValue.valueOf("payload")}));
+        // m2推送期间被重新设定投递时间，m3已被删除
+        globals.set("ARGV", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("m1"), LuaValue.valueOf("1.7292384E12"),
+                LuaValue.valueOf("m2"), LuaValue.valueOf("1.7292384E12"), LuaValue.valueOf("m3"), LuaValue.valueOf("1.7292384E12")}));
+
+        LuaValue res = globals.load(script("script/zsetRemove.lua")).call();
+        Assertions.assertEquals(1, res.toint());
+        Assertions.assertTrue(globals.get("scores").get("m1").isnil());
+        Assertions.assertTrue(globals.get("payloads").get("m1").isnil());
+        Assertions.assertEquals("b", globals.get("payloads").get("m2").tojstring());
+    }
+
+    @Test
+    public void pendingClaimTrimmed() throws IOException {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.load(MOCK_REDIS).call();
+        // 1-0、3-0存在于stream中，2-0已被截取但仍在pending中，4-0缺少消息体
+        globals.load("entries = {['1-0'] = {'payload', 'a'}, ['3-0'] = {'payload', 'c'}, ['4-0'] = {'other', 'd'}}\n"
+                + "pending = {{'1-0'}, {'2-0'}, {'3-0'}, {'4-0'}}").call();
+        LuaTable keys = LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("stream")});
+        globals.set("KEYS", keys);
+        globals.set("ARGV", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("group"), LuaValue.valueOf("consumer"),
+                LuaValue.valueOf("300000"), LuaValue.valueOf("0-0"), LuaValue.valueOf("100"), LuaValue.valueOf("1"), LuaValue.valueOf("1")}));
+
+        LuaValue res = globals.load(script("script/pendingClaim.lua")).call();
+        Assertions.assertEquals(5, res.length());
+        Assertions.assertEquals("0-0", res.get(1).tojstring());
+        Assertions.assertEquals("1-0", res.get(2).tojstring());
+        Assertions.assertEquals("a", res.get(3).tojstring());
+        Assertions.assertEquals("3-0", res.get(4).tojstring());
+        Assertions.assertEquals("c", res.get(5).tojstring());
+        // 已被截取及缺少消息体的消息直接确认，重试stream同时删除
+        LuaValue acked = globals.get("acked");
+        Assertions.assertEquals(2, acked.length());
+        Assertions.assertEquals("2-0", acked.get(1).tojstring());
+        Assertions.assertEquals("4-0", acked.get(2).tojstring());
+        Assertions.assertEquals(2, globals.get("deleted").length());
+    }
+
+    @Test
+    public void pendingClaimByXPending() throws IOException {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.load(MOCK_REDIS).call();
+        // 2-0空闲时间未达到最小空闲时间，3-0已被截取
+        globals.load("entries = {['1-0'] = {'payload', 'a'}, ['2-0'] = {'payload', 'b'}, ['4-0'] = {'payload', 'd'}}\n"
+                + "pending = {{'1-0', 'c1', 400000, 1}, {'2-0', 'c1', 1000, 1}, {'3-0', 'c1', 400000, 1}, {'4-0', 'c1', 400000, 1}}").call();
+        globals.set("KEYS", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("stream")}));
+        String claim = script("script/pendingClaim.lua");
+
+        // 读满一批，从最后一条消息的下一个ID继续认领
+        globals.set("ARGV", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("group"), LuaValue.valueOf("consumer"),
+                LuaValue.valueOf("300000"), LuaValue.valueOf("0-0"), LuaValue.valueOf("3"), LuaValue.valueOf("0"), LuaValue.valueOf("0")}));
+        LuaValue res = globals.load(claim).call();
+        Assertions.assertEquals(3, res.length());
+        Assertions.assertEquals("3-1", res.get(1).tojstring());
+        Assertions.assertEquals("1-0", res.get(2).tojstring());
+        Assertions.assertEquals("a", res.get(3).tojstring());
+        LuaValue acked = globals.get("acked");
+        Assertions.assertEquals(1, acked.length());
+        Assertions.assertEquals("3-0", acked.get(1).tojstring());
+        // 非重试stream不删除消息
+        Assertions.assertEquals(0, globals.get("deleted").length());
+
+        // 未读满一批，认领结束
+        globals.set("ARGV", LuaValue.listOf(new LuaValue[]{LuaValue.valueOf("group"), LuaValue.valueOf("consumer"),
+                LuaValue.valueOf("300000"), LuaValue.valueOf("3-1"), LuaValue.valueOf("3"), LuaValue.valueOf("0"), LuaValue.valueOf("0")}));
+        res = globals.load(claim).call();
+        Assertions.assertEquals(3, res.length());
+        Assertions.assertEquals("0-0", res.get(1).tojstring());
+        Assertions.assertEquals("4-0", res.get(2).tojstring());
+        Assertions.assertEquals("d", res.get(3).tojstring());
+    }
+
+    private static String script(String path) throws IOException {
+        return StreamUtils.copyToString(new ClassPathResource(path).getInputStream(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus;
+
+import com.github.likavn.eventbus.core.annotation.FailRetry;
+import com.github.likavn.eventbus.core.annotation.Polling;
+import com.github.likavn.eventbus.core.metadata.data.Message;
+import com.github.likavn.eventbus.core.metadata.support.FailTrigger;
+import com.github.likavn.eventbus.core.metadata.support.Listener;
+import com.github.likavn.eventbus.core.metadata.support.Trigger;
+import com.github.likavn.eventbus.demo.listener.MsgListener;
+import com.github.likavn.eventbus.provider.SingleCodeListener;
+import com.github.likavn.eventbus.provider.redis.support.RedisListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+/**
+ * 单消息code监听器测试
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+public class SingleCodeListenerTest {
+
+    @Test
+    public void copyCompiledInterval() throws NoSuchMethodException {
+        MsgListener bean = new MsgListener();
+        Method onMessage = MsgListener.class.getMethod("onMessage", Message.class);
+        Method failHandler = MsgListener.class.getMethod("failHandler", Message.class, Throwable.class);
+        Listener listener = new Listener("EBServer", Collections.singletonList("test"), 1, 1, Trigger.of(bean, onMessage),
+                FailTrigger.of(onMessage.getAnnotation(FailRetry.class), Trigger.of(bean, failHandler)), onMessage.getAnnotation(Polling.class));
+        listener.isValid();
+        Assertions.assertNotNull(listener.getPollingInterval());
+        Assertions.assertNotNull(listener.getFailInterval());
+
+        // 各消息引擎的监听器由单消息code监听器复制而来，需保留已编译的间隔表达式
+        RedisListener redisListener = new RedisListener(SingleCodeListener.of(listener, "test"));
+        Assertions.assertSame(listener.getPollingInterval(), redisListener.getPollingInterval());
+        Assertions.assertSame(listener.getFailInterval(), redisListener.getFailInterval());
+    }
+}
@@ -13,4 +13,12 @@ public class CalculateUtilTest {
         double v = CalculateUtil.evalExpression(expression);
         Assertions.assertEquals(v, 2.5);
     }
+
+    @Test
+    public void testCompile() {
+        CalculateUtil.Expression exp = CalculateUtil.compile("$count * $intervalTime + 5 - (2 - 1)", "$count", "$deliverCount", "$intervalTime");
+        Assertions.assertEquals(10, exp.eval(2, 0, 3));
+        Assertions.assertEquals(2, CalculateUtil.evalExpression("8/2/2"));
+        Assertions.assertEquals(4, CalculateUtil.evalExpression("5-2+1"));
+    }
 }
@@ -5,10 +5,12 @@ import com.github.likavn.eventbus.core.utils.NamedThreadFactory;
 import org.junit.jupiter.api.Test;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class GroupedThreadPoolExecutorTest {
 
@@ -45,4 +47,46 @@ public class GroupedThreadPoolExecutorTest {
         assertEquals(realNum, executeNum.get());
     }
 
+    @Test
+    public void testInterruptedTask() throws InterruptedException {
+        GroupedThreadPoolExecutor executor = new GroupedThreadPoolExecutor(
+                1, 1000 * 5, new NamedThreadFactory("test-interrupt-"));
+        int num = 10;
+        CountDownLatch latch = new CountDownLatch(num);
+        for (int i = 0; i < num; i++) {
+            GroupedThreadPoolExecutor.GTask task = new GroupedThreadPoolExecutor.GTask();
+            task.setName("interrupt");
+            task.setConcurrency(1);
+            task.target(() -> {
+                latch.countDown();
+                // 模拟监听器恢复中断状态
+                Thread.currentThread().interrupt();
+            });
+            executor.execute(task);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExecuteAfterClear() throws InterruptedException {
+        GroupedThreadPoolExecutor executor = new GroupedThreadPoolExecutor(
+                1, 1000 * 5, new NamedThreadFactory("test-clear-"));
+        CountDownLatch first = new CountDownLatch(1);
+        GroupedThreadPoolExecutor.GTask task = new GroupedThreadPoolExecutor.GTask();
+        task.setName("clear");
+        task.setConcurrency(1);
+        task.target(first::countDown);
+        executor.execute(task);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        executor.clear();
+        CountDownLatch second = new CountDownLatch(1);
+        task = new GroupedThreadPoolExecutor.GTask();
+        task.setName("clear");
+        task.setConcurrency(1);
+        task.target(second::countDown);
+        executor.execute(task);
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+    }
+
 }
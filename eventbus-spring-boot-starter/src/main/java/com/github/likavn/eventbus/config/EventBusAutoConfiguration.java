@@ -29,6 +29,8 @@ import com.github.likavn.eventbus.core.base.NodeTestConnect;
 import com.github.likavn.eventbus.core.constant.BusConstant;
 import com.github.likavn.eventbus.core.metadata.BusConfig;
 import com.github.likavn.eventbus.core.metadata.BusType;
+import com.github.likavn.eventbus.core.metadata.ExecutorType;
+import com.github.likavn.eventbus.core.support.CompressFrame;
 import com.github.likavn.eventbus.prop.BusProperties;
 import com.github.likavn.eventbus.provider.rabbit.config.BusBootRabbitConfiguration;
 import com.github.likavn.eventbus.provider.redis.config.BusBootRedisConfiguration;
@@ -73,6 +75,10 @@ public class EventBusAutoConfiguration {
     private void initializing() {
         log.info("Eventbus Initializing... {}", config.getType());
         BusType.isValid(config.getType());
+        ExecutorType.isValid(config.getExecutor());
+        if (null != config.getCompress() && null != config.getCompress().getMaxBytes()) {
+            CompressFrame.setMaxLength(config.getCompress().getMaxBytes());
+        }
         if (!config.getType().equals(config.getOldType())) {
             log.info("Eventbus compatibility type by {}", config.getOldType());
         }
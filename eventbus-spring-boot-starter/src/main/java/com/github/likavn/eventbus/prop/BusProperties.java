@@ -20,6 +20,9 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 配置
  *
@@ -49,6 +52,10 @@ public class BusProperties extends BusConfig {
          * 轮询时拉取Redis Stream中消息的阻塞时间，单位：毫秒，默认为：5ms
          */
         private Long pollBlockMillis = 5L;
+        /**
+         * stream无消息时的最大拉取间隔，连续拉取不到消息时拉取间隔从10ms开始翻倍增长至该值，拉取到消息时立即恢复，单位：毫秒，默认：1500ms
+         */
+        private Long pollBackoffMaxMillis = 1500L;
         /**
          * 投递消息的初始化线程池大小，默认为：5
          */
@@ -73,9 +80,64 @@ public class BusProperties extends BusConfig {
          * stream 过期数据截取，值为当前保留的消息数，5.0~<6.2版本支持，单位：条，默认：10000条
          */
         private Long streamExpiredLength = 10000L;
+        /**
+         * 是否在写入stream时按近似方式截取过期消息（XADD MINID ~ / MAXLEN ~），过期规则同streamExpiredHours、streamExpiredLength，
+         * 开启后stream不再在两次定时截取之间无限增长，定时截取任务仅作为兜底，默认：false
+         */
+        private Boolean streamTrimOnWrite = false;
+        /**
+         * 按消息编码单独配置的stream过期时间，6.2及以上版本支持，单位：小时，未配置的消息编码使用streamExpiredHours
+         */
+        private Map<String, Long> codeStreamExpiredHours = new HashMap<>();
+        /**
+         * 按消息编码单独配置的stream保留消息数，5.0~<6.2版本支持，单位：条，未配置的消息编码使用streamExpiredLength
+         */
+        private Map<String, Long> codeStreamExpiredLength = new HashMap<>();
+        /**
+         * 延时消息及重试消息zset的分片数，消息按ID散列到各分片，各分片独立加锁推送，不同节点可并行推送不同分片，默认：1，即不分片
+         * 分片序号写入key的hashtag中，redis集群下各分片分布于不同slot；分片数只可增加，减少分片数会导致多出分片中的消息无法推送
+         */
+        private Integer delayShards = 1;
+        /**
+         * 延时消息及重试消息推送至stream时单次脚本调用推送的最大消息数，默认：500条
+         */
+        private Integer delayPushBatchSize = 500;
+        /**
+         * 延时消息及重试消息单次推送任务的最长执行时间，超过时结束本次推送并立即开始下一轮推送剩余消息，单位：毫秒，默认：200毫秒
+         */
+        private Long delayPushMaxMillis = 200L;
+        /**
+         * 是否开启延时消息到期时间变更通知，开启后新发送的延时消息成为最早到期的消息时，通过pub/sub通知所有节点及时推送，默认：true
+         * 关闭后其他节点最长在15秒的轮询周期后才推送该消息
+         */
+        private Boolean delayNotify = true;
+        /**
+         * 是否以编解码器输出的原始字节保存消息体，默认：false，即二进制编码的消息以ISO-8859-1字符串保存（非ASCII字节占用2个字节）
+         * 接收端始终按字节读取消息，两种保存方式的消息可以共存；json编码时两种方式保存的内容相同，
+         * 使用二进制编码时需所有节点升级至支持按字节读取的版本后再开启
+         */
+        private Boolean binaryPayload = false;
         /**
          * redis版本号，不用配置，系统自动设定
          */
         private String redisVersion;
+
+        /**
+         * redis版本号是否大于等于指定版本
+         *
+         * @param major 主版本号
+         * @param minor 次版本号
+         * @return true：大于等于
+         */
+        public boolean isVersionGe(int major, int minor) {
+            if (null == redisVersion) {
+                return false;
+            }
+            String version = redisVersion.contains("-") ? redisVersion.substring(0, redisVersion.indexOf("-")) : redisVersion;
+            String[] versions = version.split("\\.");
+            int versionMajor = Integer.parseInt(versions[0]);
+            int versionMinor = versions.length >= 2 ? Integer.parseInt(versions[1]) : 0;
+            return versionMajor > major || (versionMajor == major && versionMinor >= minor);
+        }
     }
 }
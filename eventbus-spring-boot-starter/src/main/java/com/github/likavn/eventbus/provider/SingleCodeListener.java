@@ -60,6 +60,8 @@ public class SingleCodeListener extends Listener {
                 listener.getTrigger(), listener.getFailTrigger(), listener.getPolling());
         setType(listener.getType());
         setToDelay(listener.getToDelay());
+        setPollingInterval(listener.getPollingInterval());
+        setFailInterval(listener.getFailInterval());
         this.code = code;
     }
 
@@ -19,12 +19,18 @@ import com.github.likavn.eventbus.core.ListenerRegistry;
 import com.github.likavn.eventbus.core.api.RequestIdGenerator;
 import com.github.likavn.eventbus.core.base.AbstractSenderAdapter;
 import com.github.likavn.eventbus.core.base.InterceptorContainer;
+import com.github.likavn.eventbus.core.exception.EventBusException;
 import com.github.likavn.eventbus.core.metadata.BusConfig;
 import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.data.SendResult;
 import com.github.likavn.eventbus.provider.rabbit.constant.RabbitConstant;
 import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * rabbitMq生产者
  *
@@ -42,29 +48,106 @@ public class RabbitMsgSender extends AbstractSenderAdapter {
 
     @Override
     public void toSend(Request<?> request) {
-        rabbitTemplate.convertAndSend(
+        toSend(rabbitTemplate, request, new CorrelationData(request.getRequestId()));
+    }
+
+    @Override
+    public void toSendDelayMessage(Request<?> request) {
+        toSendDelayMessage(rabbitTemplate, request, new CorrelationData(request.getRequestId()));
+    }
+
+    /**
+     * 异步发送及时消息，开启发布确认时在broker确认后完成，否则发布后即完成
+     *
+     * @param request req
+     * @return 发送结果
+     */
+    @Override
+    public CompletableFuture<SendResult> toSendAsync(Request<?> request) {
+        CorrelationData correlationData = new CorrelationData(request.getRequestId());
+        return toFuture(request, correlationData, () -> toSend(rabbitTemplate, request, correlationData));
+    }
+
+    /**
+     * 异步发送延时消息，开启发布确认时在broker确认后完成，否则发布后即完成
+     *
+     * @param request req
+     * @return 发送结果
+     */
+    @Override
+    public CompletableFuture<SendResult> toSendDelayMessageAsync(Request<?> request) {
+        CorrelationData correlationData = new CorrelationData(request.getRequestId());
+        return toFuture(request, correlationData, () -> toSendDelayMessage(rabbitTemplate, request, correlationData));
+    }
+
+    private CompletableFuture<SendResult> toFuture(Request<?> request, CorrelationData correlationData, Runnable send) {
+        if (!rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            return completeSend(request, send);
+        }
+        try {
+            send.run();
+        } catch (Exception e) {
+            CompletableFuture<SendResult> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return correlationData.getFuture().completable().thenApply(confirm -> {
+            if (!confirm.isAck()) {
+                throw new EventBusException("rabbitMq nack, requestId=" + request.getRequestId() + ", reason=" + confirm.getReason());
+            }
+            return new SendResult(request.getRequestId(), null);
+        });
+    }
+
+    /**
+     * 批量发送及时消息，整批消息在同一个信道上发布
+     *
+     * @param requests req list
+     */
+    @Override
+    public void toSendBatch(List<Request<?>> requests) {
+        rabbitTemplate.invoke(operations -> {
+            requests.forEach(request -> toSend(operations, request, new CorrelationData(request.getRequestId())));
+            return null;
+        });
+    }
+
+    /**
+     * 批量发送延时消息，整批消息在同一个信道上发布
+     *
+     * @param requests req list
+     */
+    @Override
+    public void toSendDelayBatch(List<Request<?>> requests) {
+        rabbitTemplate.invoke(operations -> {
+            requests.forEach(request -> toSendDelayMessage(operations, request, new CorrelationData(request.getRequestId())));
+            return null;
+        });
+    }
+
+    private void toSend(RabbitOperations operations, Request<?> request, CorrelationData correlationData) {
+        operations.convertAndSend(
                 String.format(RabbitConstant.TIMELY_EXCHANGE, request.getServiceId()),
                 String.format(RabbitConstant.TIMELY_ROUTING_KEY, request.topic()),
-                request.toJson(),
+                encode(request),
                 message -> {
                     message.getMessageProperties().setContentEncoding("utf-8");
                     return message;
                 },
-                new CorrelationData(request.getRequestId()));
+                correlationData);
     }
 
-    @Override
-    public void toSendDelayMessage(Request<?> request) {
-        rabbitTemplate.convertAndSend(
+    private void toSendDelayMessage(RabbitOperations operations, Request<?> request, CorrelationData correlationData) {
+        operations.convertAndSend(
                 String.format(RabbitConstant.DELAY_EXCHANGE, request.getServiceId()),
                 getDelayRoutingKey(request),
-                request.toJson(),
+                encode(request),
                 message -> {
                     //配置消息的过期时间,单位：毫秒
                     message.getMessageProperties().setHeader("x-delay", 1000L * request.getDelayTime());
                     return message;
                 },
-                new CorrelationData(request.getRequestId())
+                correlationData
         );
     }
 
@@ -17,11 +17,12 @@ package com.github.likavn.eventbus.provider.rabbit.support;
 
 import com.github.likavn.eventbus.core.base.AcquireListeners;
 import com.github.likavn.eventbus.core.base.Lifecycle;
-import com.github.likavn.eventbus.core.constant.BusConstant;
 import com.github.likavn.eventbus.core.exception.EventBusException;
 import com.github.likavn.eventbus.core.metadata.BusConfig;
+import com.github.likavn.eventbus.core.metadata.ExecutorType;
 import com.github.likavn.eventbus.core.metadata.support.Listener;
-import com.github.likavn.eventbus.core.utils.Func;
+import com.github.likavn.eventbus.core.utils.GroupedThreadPoolExecutor;
+import com.github.likavn.eventbus.core.utils.NamedThreadFactory;
 import com.github.likavn.eventbus.provider.rabbit.constant.RabbitConstant;
 import com.rabbitmq.client.*;
 import lombok.extern.slf4j.Slf4j;
@@ -41,16 +42,41 @@ import java.util.stream.Collectors;
  **/
 @Slf4j
 public abstract class AbstractRabbitRegisterContainer implements AcquireListeners<RabbitListener>, Lifecycle {
+    /**
+     * 投递线程池中空闲线程存活时长，单位：毫秒
+     */
+    private static final long DELIVER_KEEP_ALIVE_MILLIS = 1000L * 60;
+    /**
+     * 销毁时等待已收到的消息投递完成的最长时间，单位：毫秒
+     */
+    private static final long DESTROY_AWAIT_MILLIS = 1000L * 10;
     private final CachingConnectionFactory connectionFactory;
     private Connection connection = null;
     private final List<Channel> channels = Collections.synchronizedList(new ArrayList<>());
+    private final List<RabbitDeliverConsumer> consumers = Collections.synchronizedList(new ArrayList<>());
     protected final BusConfig config;
+    /**
+     * 投递执行器，各监听器共享，按监听器队列分组控制并发数，每次注册时创建，销毁时停止
+     */
+    private GroupedThreadPoolExecutor deliverExecutor;
 
     protected AbstractRabbitRegisterContainer(CachingConnectionFactory connectionFactory, BusConfig config) {
         this.connectionFactory = connectionFactory;
         this.config = config;
     }
 
+    /**
+     * 创建投递执行器，配置为虚拟线程投递时使用虚拟线程
+     *
+     * @param config 配置
+     * @return 投递执行器
+     */
+    private GroupedThreadPoolExecutor createDeliverExecutor(BusConfig config) {
+        NamedThreadFactory threadFactory = new NamedThreadFactory(this.getClass().getSimpleName() + ".deliver-",
+                ExecutorType.VIRTUAL.valid(config.getExecutor()));
+        return new GroupedThreadPoolExecutor(config.getConcurrency(), DELIVER_KEEP_ALIVE_MILLIS, threadFactory);
+    }
+
     public synchronized Connection getConnection() {
         if (null == connection) {
             connection = connectionFactory.createConnection();
@@ -65,24 +91,19 @@ public abstract class AbstractRabbitRegisterContainer implements AcquireListener
     }
 
     @Override
-    public void register() {
+    public synchronized void register() {
         List<RabbitListener> listeners = getListeners();
+        // 重连时旧执行器已在销毁时停止，重新创建投递执行器
+        this.deliverExecutor = createDeliverExecutor(config);
         try (Channel channel = getConnection().createChannel(false)) {
             // 根据监听器类型创建交换机
             createExchanges(channel, listeners);
             createQueues(channel, listeners);
             queueBinds(channel, listeners);
             for (RabbitListener listener : listeners) {
-                // 对每个监听器，根据其并发级别创建消费者
-                Func.pollRun(listener.isRetry() ? listener.getRetryConcurrency() : listener.getConcurrency(), () -> {
-                    // 创建消费者的过程可能会抛出IOException
-                    try {
-                        createConsumer(listener);
-                    } catch (IOException e) {
-                        log.error("[register createConsumer error] ", e);
-                        throw new EventBusException(e);
-                    }
-                });
+                int concurrency = listener.isRetry() ? listener.getRetryConcurrency() : listener.getConcurrency();
+                // 每个监听器只创建一个消费者，由投递执行器按监听器并发数并发投递
+                createConsumer(listener, concurrency);
             }
         } catch (Exception e) {
             log.error("[register error] ", e);
@@ -93,35 +114,22 @@ public abstract class AbstractRabbitRegisterContainer implements AcquireListener
 
     /**
      * 创建消费者并开始消费消息
-     * 该方法根据传入的RabbitListener对象配置，创建一个新的信道，绑定队列、交换机和路由键，然后开始消费消息
-     * 消费者使用DefaultConsumer类的匿名子类来处理接收到的消息
+     * 该方法根据传入的RabbitListener对象配置，创建一个新的信道，然后开始消费消息
+     * 消费者收到消息后交由投递执行器投递，同时投递的消息数不超过监听器并发数，投递结果合并确认
      *
-     * @param listener RabbitListener对象，包含了监听器的相关配置信息，如队列名、交换机名和路由键
+     * @param listener    RabbitListener对象，包含了监听器的相关配置信息，如队列名、交换机名和路由键
+     * @param concurrency 监听器并发数
      * @throws IOException 如果在创建信道或开始消费过程中发生I/O错误
      */
-    private void createConsumer(RabbitListener listener) throws IOException {
+    private void createConsumer(RabbitListener listener, int concurrency) throws IOException {
         Channel channel = createChannel();
-        // 设置通道的消息批量处理大小
-        channel.basicQos(config.getMsgBatchSize());
+        // 设置通道的预取数，单个消费者承担监听器的全部并发
+        int prefetchCount = config.getMsgBatchSize() * concurrency;
+        channel.basicQos(prefetchCount);
         // 开始消费消息，自动应答设置为false，即需要手动确认消息处理
-        channel.basicConsume(listener.getQueue(), false, new DefaultConsumer(channel) {
-            @Override
-            public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
-                String oldName = Func.reThreadName(BusConstant.THREAD_NAME);
-                try {
-                    deliver(listener, body);
-                    // 手动确认消息处理成功
-                    channel.basicAck(envelope.getDeliveryTag(), false);
-                } catch (Exception e) {
-                    // 记录消息处理失败的日志，并重试或拒绝消息
-                    log.error("[Eventbus error] ", e);
-                    // 重试消息，不处理其他消息，true表示重新入队
-                    channel.basicNack(envelope.getDeliveryTag(), false, true);
-                } finally {
-                    Thread.currentThread().setName(oldName);
-                }
-            }
-        });
+        RabbitDeliverConsumer consumer = new RabbitDeliverConsumer(channel, listener, concurrency, prefetchCount, deliverExecutor, this::deliver);
+        channel.basicConsume(listener.getQueue(), false, consumer);
+        consumers.add(consumer);
     }
 
     /**
@@ -189,8 +197,15 @@ public abstract class AbstractRabbitRegisterContainer implements AcquireListener
      */
     protected abstract void deliver(Listener listener, byte[] body);
 
+    /**
+     * 销毁时先取消消费，等待已收到的消息投递完成并确认后再关闭信道，最后停止投递执行器
+     */
     @Override
     public synchronized void destroy() {
+        consumers.forEach(RabbitDeliverConsumer::cancel);
+        awaitConsumersIdle();
+        consumers.forEach(RabbitDeliverConsumer::flush);
+        consumers.clear();
         if (!channels.isEmpty()) {
             Iterator<Channel> iterator = channels.iterator();
             while (iterator.hasNext()) {
@@ -202,5 +217,31 @@ public abstract class AbstractRabbitRegisterContainer implements AcquireListener
         }
         // destroy
         RabbitUtils.closeConnection(this.connection);
+        // 信道关闭后未确认的消息由服务端重新投递
+        if (null != deliverExecutor) {
+            deliverExecutor.clear();
+            deliverExecutor = null;
+        }
+    }
+
+    /**
+     * 等待各消费者缓冲中的消息投递完成，超过{@link #DESTROY_AWAIT_MILLIS}时不再等待
+     */
+    private void awaitConsumersIdle() {
+        long deadline = System.currentTimeMillis() + DESTROY_AWAIT_MILLIS;
+        for (RabbitDeliverConsumer consumer : consumers) {
+            while (!consumer.isIdle()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    log.warn("rabbit deliver not finished in {}ms, unacked messages will be redelivered", DESTROY_AWAIT_MILLIS);
+                    return;
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
     }
 }
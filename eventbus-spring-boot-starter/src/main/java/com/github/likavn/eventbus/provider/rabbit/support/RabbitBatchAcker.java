@@ -0,0 +1,139 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.rabbit.support;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * 信道消息确认合并器
+ * <p>
+ * 同一信道的投递标签单调递增，并发投递时消息完成顺序与投递顺序不一致。
+ * 投递中消息之前的已完成消息是连续的，使用{@code basicAck(最大标签, multiple=true)}一次确认；
+ * 连续的已完成消息达到批量数或信道中已无投递中的消息时发送确认。
+ * 投递中的消息长时间未完成，导致其后已完成的消息达到批量数时，逐条确认以释放预取额度。
+ * 失败的消息立即拒绝并重新入队，拒绝的标签不会作为合并确认的标签。
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@Slf4j
+class RabbitBatchAcker {
+    private final Channel channel;
+    /**
+     * 合并确认的批量数
+     */
+    private final int batchSize;
+    /**
+     * 投递中的消息标签
+     */
+    private final TreeSet<Long> inFlightTags = new TreeSet<>();
+    /**
+     * 投递成功未确认的消息标签
+     */
+    private final TreeSet<Long> completedTags = new TreeSet<>();
+
+    RabbitBatchAcker(Channel channel, int batchSize) {
+        this.channel = channel;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 记录投递中的消息，需在消息交由投递线程前调用
+     *
+     * @param tag 投递标签
+     */
+    synchronized void delivered(long tag) {
+        inFlightTags.add(tag);
+    }
+
+    /**
+     * 消息投递成功
+     *
+     * @param tag 投递标签
+     */
+    synchronized void ack(long tag) {
+        inFlightTags.remove(tag);
+        completedTags.add(tag);
+        flush();
+    }
+
+    /**
+     * 消息投递失败，拒绝消息并重新入队
+     *
+     * @param tag 投递标签
+     */
+    synchronized void nack(long tag) {
+        inFlightTags.remove(tag);
+        try {
+            channel.basicNack(tag, false, true);
+        } catch (Exception e) {
+            log.error("[Eventbus error] basicNack fail", e);
+        }
+        flush();
+    }
+
+    /**
+     * 按条件发送合并确认及逐条确认
+     */
+    private void flush() {
+        if (completedTags.isEmpty()) {
+            return;
+        }
+        boolean idle = inFlightTags.isEmpty();
+        NavigableSet<Long> contiguous = idle ? completedTags : completedTags.headSet(inFlightTags.first(), false);
+        if (!contiguous.isEmpty() && (idle || contiguous.size() >= batchSize)) {
+            basicAck(contiguous.last(), true);
+            contiguous.clear();
+        }
+        if (completedTags.size() >= batchSize) {
+            // 前方存在投递中的消息，无法合并确认，逐条确认以释放预取额度
+            for (Long tag : completedTags) {
+                basicAck(tag, false);
+            }
+            completedTags.clear();
+        }
+    }
+
+    /**
+     * 确认所有投递成功未确认的消息，投递中消息之前的消息合并确认，其后的消息逐条确认
+     */
+    synchronized void flushAll() {
+        if (completedTags.isEmpty()) {
+            return;
+        }
+        NavigableSet<Long> contiguous = inFlightTags.isEmpty() ? completedTags : completedTags.headSet(inFlightTags.first(), false);
+        if (!contiguous.isEmpty()) {
+            basicAck(contiguous.last(), true);
+            contiguous.clear();
+        }
+        for (Long tag : completedTags) {
+            basicAck(tag, false);
+        }
+        completedTags.clear();
+    }
+
+    private void basicAck(long tag, boolean multiple) {
+        try {
+            channel.basicAck(tag, multiple);
+        } catch (Exception e) {
+            log.error("[Eventbus error] basicAck fail", e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.rabbit.support;
+
+import com.github.likavn.eventbus.core.constant.BusConstant;
+import com.github.likavn.eventbus.core.utils.Func;
+import com.github.likavn.eventbus.core.utils.GroupedThreadPoolExecutor;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Delivery;
+import com.rabbitmq.client.Envelope;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * rabbitmq消费者
+ * <p>
+ * 客户端分发线程收到消息后只放入缓冲队列，由投递线程池中的工作线程取出并投递，慢监听器不会阻塞连接的分发线程；
+ * 同时运行的工作线程数不超过监听器并发数，缓冲中的消息数受信道预取数限制。
+ * 投递结果由{@link RabbitBatchAcker}合并确认。
+ *
+ * @author likavn
+ * @date 2024/10/18
+ */
+@Slf4j
+class RabbitDeliverConsumer extends DefaultConsumer {
+    private final RabbitListener listener;
+    private final int concurrency;
+    private final GroupedThreadPoolExecutor deliverExecutor;
+    private final BiConsumer<RabbitListener, byte[]> deliver;
+    private final RabbitBatchAcker acker;
+    /**
+     * 投递任务，工作线程释放分组许可后才减少运行中的工作线程数
+     */
+    private final GroupedThreadPoolExecutor.GTask task;
+    /**
+     * 待投递的消息
+     */
+    private final Queue<Delivery> buffer = new ConcurrentLinkedQueue<>();
+    /**
+     * 运行中的工作线程数
+     */
+    private final AtomicInteger activeWorkers = new AtomicInteger(0);
+
+    RabbitDeliverConsumer(Channel channel, RabbitListener listener, int concurrency, int prefetchCount,
+                          GroupedThreadPoolExecutor deliverExecutor, BiConsumer<RabbitListener, byte[]> deliver) {
+        super(channel);
+        this.listener = listener;
+        this.concurrency = concurrency;
+        this.deliverExecutor = deliverExecutor;
+        this.deliver = deliver;
+        // 合并确认数不超过预取数的一半，确认前预取额度仍有剩余，消息持续推送
+        this.acker = new RabbitBatchAcker(channel, prefetchCount / 2);
+        this.task = new GroupedThreadPoolExecutor.GTask(listener.getQueue(), concurrency, null, this::work, this::released);
+    }
+
+    @Override
+    public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+        acker.delivered(envelope.getDeliveryTag());
+        buffer.offer(new Delivery(envelope, properties, body));
+        startWorkers();
+    }
+
+    /**
+     * 取消消费，服务端不再推送消息，已收到的消息继续投递
+     */
+    void cancel() {
+        String consumerTag = getConsumerTag();
+        if (null == consumerTag || !getChannel().isOpen()) {
+            return;
+        }
+        try {
+            getChannel().basicCancel(consumerTag);
+        } catch (Exception e) {
+            log.error("[Eventbus error] basicCancel fail, queue={}", listener.getQueue(), e);
+        }
+    }
+
+    /**
+     * 缓冲中的消息是否已全部投递完成
+     */
+    boolean isIdle() {
+        return buffer.isEmpty() && activeWorkers.get() == 0;
+    }
+
+    /**
+     * 确认所有已投递成功的消息
+     */
+    void flush() {
+        acker.flushAll();
+    }
+
+    /**
+     * 缓冲中有消息且工作线程数未达并发数时启动工作线程，工作线程数未达并发数时总有空闲许可，提交时不会阻塞分发线程
+     */
+    private void startWorkers() {
+        while (!buffer.isEmpty() && acquireWorker()) {
+            try {
+                deliverExecutor.execute(task);
+            } catch (Exception e) {
+                activeWorkers.decrementAndGet();
+                log.error("[Eventbus error] start deliver worker fail", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取工作线程额度
+     *
+     * @return true：获取成功
+     */
+    private boolean acquireWorker() {
+        int active;
+        do {
+            active = activeWorkers.get();
+            if (active >= concurrency) {
+                return false;
+            }
+        } while (!activeWorkers.compareAndSet(active, active + 1));
+        return true;
+    }
+
+    /**
+     * 工作线程循环投递缓冲中的消息，缓冲为空时退出
+     */
+    private void work() {
+        Delivery delivery;
+        while (null != (delivery = buffer.poll())) {
+            handle(delivery);
+        }
+    }
+
+    /**
+     * 工作线程退出并释放分组许可后减少工作线程数，再次检查缓冲，避免分发线程在计数减少前放入的消息无工作线程处理
+     */
+    private void released() {
+        activeWorkers.decrementAndGet();
+        startWorkers();
+    }
+
+    /**
+     * 投递消息并确认
+     *
+     * @param delivery 消息
+     */
+    private void handle(Delivery delivery) {
+        long tag = delivery.getEnvelope().getDeliveryTag();
+        String oldName = Func.reThreadName(BusConstant.THREAD_NAME);
+        try {
+            deliver.accept(listener, delivery.getBody());
+            acker.ack(tag);
+        } catch (Exception e) {
+            // 记录消息处理失败的日志，并重试或拒绝消息
+            log.error("[Eventbus error] ", e);
+            // 重试消息，不处理其他消息，true表示重新入队
+            acker.nack(tag);
+        } finally {
+            Thread.currentThread().setName(oldName);
+        }
+    }
+}
@@ -15,13 +15,18 @@
  */
 package com.github.likavn.eventbus.provider.redis;
 
+import com.github.likavn.eventbus.core.utils.Func;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 
 import java.util.Collections;
+import java.util.UUID;
 
 /**
  * redis分布式锁
+ * <p>
+ * 锁值为当前节点的持有者标识，持有者再次获取锁时续期，可作为租约长期持有；
+ * 释放锁时校验持有者，锁过期后被其他节点获取时，原持有者不会误删他人的锁
  *
  * @author likavn
  * @date 2023/2/22
@@ -31,12 +36,22 @@ public class RLock {
      * 分布式锁过期时间,单位：秒
      */
     private static final Long LOCK_REDIS_TIMEOUT = 30L;
+    /**
+     * 释放锁脚本，仅持有者可删除锁
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]); end; return 0;", Long.class);
     private final StringRedisTemplate stringRedisTemplate;
     private final DefaultRedisScript<Boolean> lockRedisScript;
+    /**
+     * 当前节点的锁持有者标识
+     */
+    private final String owner;
 
     public RLock(StringRedisTemplate stringRedisTemplate, DefaultRedisScript<Boolean> lockRedisScript) {
         this.stringRedisTemplate = stringRedisTemplate;
         this.lockRedisScript = lockRedisScript;
+        this.owner = Func.getHostAddress() + ":" + Func.getPid() + ":" + UUID.randomUUID().toString().substring(0, 8);
     }
 
     /**
@@ -50,23 +65,32 @@ public class RLock {
     }
 
     /**
-     * 获取锁
+     * 获取锁，当前节点已持有锁时重置锁的超时时间
      *
      * @param key     key
      * @param timeout 超时时间，单位：秒
      * @return t
      */
     public boolean getLock(String key, long timeout) {
-        Boolean flag = stringRedisTemplate.execute(lockRedisScript, Collections.singletonList(key), "" + timeout);
+        Boolean flag = stringRedisTemplate.execute(lockRedisScript, Collections.singletonList(key), "" + timeout, owner);
         return Boolean.TRUE.equals(flag);
     }
 
     /**
-     * 释放锁
+     * 释放锁，锁已被其他节点持有时不做处理
      *
      * @param key k
      */
     public void releaseLock(String key) {
-        stringRedisTemplate.delete(key);
+        stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key), owner);
+    }
+
+    /**
+     * 获取当前节点的锁持有者标识
+     *
+     * @return 持有者标识
+     */
+    public String getOwner() {
+        return owner;
     }
 }
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.redis;
+
+import com.github.likavn.eventbus.core.TaskRegistry;
+import com.github.likavn.eventbus.core.base.Lifecycle;
+import com.github.likavn.eventbus.core.support.task.Task;
+import com.github.likavn.eventbus.prop.BusProperties;
+import com.github.likavn.eventbus.provider.redis.constant.RedisConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * redis 延时消息到期时间变更通知
+ * <p>
+ * 延时消息发送后成为分片中最早到期的消息时，发送节点通过pub/sub通知所有节点，
+ * 各节点收到通知后重置对应推送任务的执行时间，避免持有推送锁的节点休眠至下个轮询周期才推送消息
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+@Slf4j
+public class RedisDelayNotifyListener implements MessageListener, Lifecycle {
+    /**
+     * 通知消息中到期时间与zset key的分隔符
+     */
+    private static final char SEPARATOR = ',';
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TaskRegistry taskRegistry;
+    private final BusProperties busProperties;
+    private RedisMessageListenerContainer container;
+
+    public RedisDelayNotifyListener(StringRedisTemplate stringRedisTemplate, TaskRegistry taskRegistry, BusProperties busProperties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.taskRegistry = taskRegistry;
+        this.busProperties = busProperties;
+    }
+
+    @Override
+    public synchronized void register() {
+        if (!Boolean.TRUE.equals(busProperties.getRedis().getDelayNotify()) || null != container) {
+            return;
+        }
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(stringRedisTemplate.getRequiredConnectionFactory());
+        container.addMessageListener(this, new ChannelTopic(String.format(RedisConstant.DELAY_NOTIFY_CHANNEL, busProperties.getServiceId())));
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(SEPARATOR);
+        if (index <= 0) {
+            return;
+        }
+        Task task = taskRegistry.getTask(body.substring(index + 1));
+        if (null == task) {
+            return;
+        }
+        try {
+            task.refreshNextExecutionTime(Long.parseLong(body.substring(0, index)));
+        } catch (NumberFormatException e) {
+            log.warn("delay notify message invalid：{}", body);
+        }
+    }
+
+    /**
+     * 通知延时消息所属服务的所有节点延时消息分片中最早到期的时间
+     *
+     * @param stringRedisTemplate redis template
+     * @param serviceId           延时消息所属服务ID
+     * @param zSetKey             延时队列分片key
+     * @param timeMillis          最早到期时间
+     */
+    public static void publish(StringRedisTemplate stringRedisTemplate, String serviceId, String zSetKey, long timeMillis) {
+        stringRedisTemplate.convertAndSend(String.format(RedisConstant.DELAY_NOTIFY_CHANNEL, serviceId),
+                timeMillis + String.valueOf(SEPARATOR) + zSetKey);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (null == container) {
+            return;
+        }
+        try {
+            container.destroy();
+        } catch (Exception e) {
+            log.error("delay notify container destroy error", e);
+        }
+        container = null;
+    }
+}
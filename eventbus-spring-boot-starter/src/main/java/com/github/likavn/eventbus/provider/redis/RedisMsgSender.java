@@ -20,38 +20,90 @@ import com.github.likavn.eventbus.core.TaskRegistry;
 import com.github.likavn.eventbus.core.api.RequestIdGenerator;
 import com.github.likavn.eventbus.core.base.AbstractSenderAdapter;
 import com.github.likavn.eventbus.core.base.InterceptorContainer;
-import com.github.likavn.eventbus.core.metadata.BusConfig;
 import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.data.SendResult;
+import com.github.likavn.eventbus.core.exception.EventBusException;
 import com.github.likavn.eventbus.core.support.task.Task;
+import com.github.likavn.eventbus.prop.BusProperties;
 import com.github.likavn.eventbus.provider.redis.constant.RedisConstant;
+import com.github.likavn.eventbus.provider.redis.support.RedisArgsSerializer;
+import com.github.likavn.eventbus.provider.redis.support.RedisSlots;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.connection.stream.Record;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * redis消息生产者
+ * <p>
+ * 消息体以字节参数写入redis，开启binaryPayload时直接写入编解码器输出的字节，不再转换为字符串
  *
  * @author likavn
  * @since 2023/01/01
  */
 @Slf4j
 public class RedisMsgSender extends AbstractSenderAdapter {
+    /**
+     * stream消息体字段名
+     */
+    private static final byte[] PAYLOAD_FIELD = RedisConstant.STREAM_PAYLOAD_FIELD.getBytes(StandardCharsets.UTF_8);
     private final StringRedisTemplate stringRedisTemplate;
     private final DefaultRedisScript<Long> zSetAddRedisScript;
+    private final DefaultRedisScript<String> streamAddRedisScript;
+    private final DefaultRedisScript<List> zSetBatchAddRedisScript;
+    private final RedisStreamTrim streamTrim;
     private final TaskRegistry taskRegistry;
+    /**
+     * 延时消息zset分片数
+     */
+    private final int delayShards;
+    /**
+     * 是否开启延时消息到期时间变更通知
+     */
+    private final boolean delayNotify;
+    /**
+     * 是否以编解码器输出的原始字节保存消息体
+     */
+    private final boolean binaryPayload;
+    /**
+     * lettuce共享的原生异步命令对象，首次使用时从连接工厂获取
+     */
+    private volatile RedisClusterAsyncCommands<byte[], byte[]> asyncCommands;
+    /**
+     * 是否为redis集群
+     */
+    private Boolean cluster;
 
     public RedisMsgSender(StringRedisTemplate stringRedisTemplate,
-                          BusConfig config,
+                          BusProperties config,
                           InterceptorContainer interceptorContainer,
                           DefaultRedisScript<Long> zSetAddRedisScript,
+                          DefaultRedisScript<String> streamAddRedisScript,
+                          DefaultRedisScript<List> zSetBatchAddRedisScript,
                           TaskRegistry taskRegistry, RequestIdGenerator requestIdGenerator, ListenerRegistry registry) {
         super(config, interceptorContainer, requestIdGenerator, registry);
         this.stringRedisTemplate = stringRedisTemplate;
         this.zSetAddRedisScript = zSetAddRedisScript;
+        this.streamAddRedisScript = streamAddRedisScript;
+        this.zSetBatchAddRedisScript = zSetBatchAddRedisScript;
+        this.streamTrim = new RedisStreamTrim(config);
         this.taskRegistry = taskRegistry;
+        this.delayShards = Math.max(1, config.getRedis().getDelayShards());
+        this.delayNotify = Boolean.TRUE.equals(config.getRedis().getDelayNotify());
+        this.binaryPayload = Boolean.TRUE.equals(config.getRedis().getBinaryPayload());
     }
 
     @Override
@@ -60,22 +112,297 @@ public class RedisMsgSender extends AbstractSenderAdapter {
     }
 
     public void toSend(String streamKey, Request<?> request) {
-        stringRedisTemplate.opsForStream().add(Record.of(request.toJson()).withStreamKey(streamKey));
+        if (streamTrim.isTrimOnWrite()) {
+            String[] trimArgs = streamTrim.writeArgs(request.getCode());
+            execute(streamAddRedisScript, Collections.singletonList(streamKey), trimArgs[0], trimArgs[1], "1", payload(request));
+            return;
+        }
+        byte[] payload = payload(request);
+        stringRedisTemplate.execute((RedisCallback<RecordId>) connection -> connection.streamCommands()
+                .xAdd(toBytes(streamKey), Collections.singletonMap(PAYLOAD_FIELD, payload)));
     }
 
     @Override
     public void toSendDelayMessage(Request<?> request) {
         String zSetKey = getZsetKey(request);
         // 计算延迟时间
-        Long timeMillis = System.currentTimeMillis() + (1000L * request.getDelayTime());
-        timeMillis = stringRedisTemplate.execute(zSetAddRedisScript,
-                Collections.singletonList(zSetKey), String.valueOf(timeMillis), request.toJson());
+        long timeMillis = System.currentTimeMillis() + (1000L * request.getDelayTime());
+        Long firstTimeMillis = execute(zSetAddRedisScript,
+                Arrays.asList(zSetKey, RedisConstant.payloadKey(zSetKey)), String.valueOf(timeMillis), getMember(request), payload(request));
         // 重置延迟任务
-        setNextTriggerTimeMillis(zSetKey, timeMillis);
+        setNextTriggerTimeMillis(zSetKey, firstTimeMillis);
+        notifyNextTriggerTimeMillis(request.getServiceId(), zSetKey, timeMillis, firstTimeMillis);
+    }
+
+    /**
+     * 批量发送及时消息，同一slot的stream使用一次脚本调用写入，写入时截取开启时同时截取过期消息；
+     * redis集群下各slot的脚本异步并行提交
+     *
+     * @param requests req list
+     */
+    @Override
+    public void toSendBatch(List<Request<?>> requests) {
+        Map<String, List<Request<?>>> streamRequests = new LinkedHashMap<>(4);
+        for (Request<?> request : requests) {
+            streamRequests.computeIfAbsent(String.format(RedisConstant.TIMELY_QUEUE, request.topic()), k -> new ArrayList<>()).add(request);
+        }
+        List<ScriptCall> calls = new ArrayList<>();
+        for (List<String> streamKeys : RedisSlots.groupBySlot(isCluster(), streamRequests.keySet(), k -> k)) {
+            ScriptCall call = new ScriptCall();
+            for (String streamKey : streamKeys) {
+                List<Request<?>> list = streamRequests.get(streamKey);
+                String[] trimArgs = streamTrim.writeArgs(list.get(0).getCode());
+                call.keys.add(streamKey);
+                call.args.add(trimArgs[0]);
+                call.args.add(trimArgs[1]);
+                call.args.add(String.valueOf(list.size()));
+                list.forEach(request -> call.args.add(payload(request)));
+            }
+            calls.add(call);
+        }
+        executeBySlot(streamAddRedisScript, ScriptOutputType.VALUE, calls);
     }
 
+    /**
+     * 批量发送延时消息，同一slot的延时队列使用一次脚本调用写入，
+     * 同一消息先写入消息体再写入zset，推送时不会出现zset中有标识而无消息体的情况；
+     * redis集群下各slot的脚本异步并行提交
+     *
+     * @param requests req list
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void toSendDelayBatch(List<Request<?>> requests) {
+        long currentTimeMillis = System.currentTimeMillis();
+        Map<String, List<Request<?>>> zSetRequests = new LinkedHashMap<>(4);
+        // 每个zset key本批次最早的到期时间
+        Map<String, Long> firstTimeMillisMap = new HashMap<>(4);
+        for (Request<?> request : requests) {
+            String zSetKey = getZsetKey(request);
+            zSetRequests.computeIfAbsent(zSetKey, k -> new ArrayList<>()).add(request);
+            firstTimeMillisMap.merge(zSetKey, currentTimeMillis + (1000L * request.getDelayTime()), Math::min);
+        }
+        List<ScriptCall> calls = new ArrayList<>();
+        for (List<String> zSetKeys : RedisSlots.groupBySlot(isCluster(), zSetRequests.keySet(), k -> k)) {
+            ScriptCall call = new ScriptCall();
+            for (String zSetKey : zSetKeys) {
+                List<Request<?>> list = zSetRequests.get(zSetKey);
+                call.keys.add(zSetKey);
+                call.keys.add(RedisConstant.payloadKey(zSetKey));
+                call.args.add(String.valueOf(list.size()));
+                for (Request<?> request : list) {
+                    call.args.add(String.valueOf(currentTimeMillis + (1000L * request.getDelayTime())));
+                    call.args.add(getMember(request));
+                    call.args.add(payload(request));
+                }
+            }
+            calls.add(call);
+        }
+        List<Object> results = executeBySlot(zSetBatchAddRedisScript, ScriptOutputType.MULTI, calls);
+        // 重置延迟任务
+        for (int i = 0; i < calls.size(); i++) {
+            List<Object> firstTimes = (List<Object>) results.get(i);
+            List<String> keys = calls.get(i).keys;
+            for (int k = 0; null != firstTimes && k < firstTimes.size(); k++) {
+                String zSetKey = keys.get(k * 2);
+                Long firstTimeMillis = null == firstTimes.get(k) ? null : ((Number) firstTimes.get(k)).longValue();
+                setNextTriggerTimeMillis(zSetKey, firstTimeMillis);
+                notifyNextTriggerTimeMillis(zSetRequests.get(zSetKey).get(0).getServiceId(), zSetKey,
+                        firstTimeMillisMap.get(zSetKey), firstTimeMillis);
+            }
+        }
+    }
+
+    /**
+     * 按slot分组执行脚本，redis集群且可使用lettuce共享连接时各slot的脚本异步并行提交，由lettuce按节点管道化发送，
+     * 否则依次执行
+     *
+     * @param script     脚本
+     * @param outputType 脚本返回值类型
+     * @param calls      各slot的脚本参数
+     * @return 各slot的脚本返回值
+     */
+    private List<Object> executeBySlot(DefaultRedisScript<?> script, ScriptOutputType outputType, List<ScriptCall> calls) {
+        List<Object> results = new ArrayList<>(calls.size());
+        RedisClusterAsyncCommands<byte[], byte[]> commands = calls.size() > 1 ? getAsyncCommands() : null;
+        if (null == commands) {
+            for (ScriptCall call : calls) {
+                results.add(execute(script, call.keys, call.args.toArray()));
+            }
+            return results;
+        }
+        List<CompletableFuture<Object>> futures = new ArrayList<>(calls.size());
+        for (ScriptCall call : calls) {
+            futures.add(evalAsync(commands, script, outputType, toBytes(call.keys), toBytes(call.args)));
+        }
+        for (CompletableFuture<Object> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new EventBusException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 异步发送及时消息，使用lettuce共享连接直接提交XADD命令，不阻塞调用线程；
+     * 非lettuce共享连接时退化为同步发送
+     *
+     * @param request req
+     * @return 发送结果
+     */
+    @Override
+    public CompletableFuture<SendResult> toSendAsync(Request<?> request) {
+        RedisClusterAsyncCommands<byte[], byte[]> commands = getAsyncCommands();
+        if (null == commands) {
+            return super.toSendAsync(request);
+        }
+        byte[] streamKey = toBytes(String.format(RedisConstant.TIMELY_QUEUE, request.topic()));
+        if (streamTrim.isTrimOnWrite()) {
+            String[] trimArgs = streamTrim.writeArgs(request.getCode());
+            byte[][] args = {toBytes(trimArgs[0]), toBytes(trimArgs[1]), toBytes("1"), payload(request)};
+            return this.<byte[]>evalAsync(commands, streamAddRedisScript, ScriptOutputType.VALUE, new byte[][]{streamKey}, args)
+                    .thenApply(msgId -> new SendResult(request.getRequestId(), new String(msgId, StandardCharsets.UTF_8)));
+        }
+        return commands.xadd(streamKey, Collections.singletonMap(PAYLOAD_FIELD, payload(request)))
+                .toCompletableFuture()
+                .thenApply(msgId -> new SendResult(request.getRequestId(), msgId));
+    }
+
+    /**
+     * 异步发送延时消息，使用lettuce共享连接直接提交zsetAdd脚本，不阻塞调用线程；
+     * 非lettuce共享连接时退化为同步发送
+     *
+     * @param request req
+     * @return 发送结果
+     */
+    @Override
+    public CompletableFuture<SendResult> toSendDelayMessageAsync(Request<?> request) {
+        RedisClusterAsyncCommands<byte[], byte[]> commands = getAsyncCommands();
+        if (null == commands) {
+            return super.toSendDelayMessageAsync(request);
+        }
+        String zSetKey = getZsetKey(request);
+        byte[][] keys = {toBytes(zSetKey), toBytes(RedisConstant.payloadKey(zSetKey))};
+        long timeMillis = System.currentTimeMillis() + (1000L * request.getDelayTime());
+        byte[][] args = {toBytes(String.valueOf(timeMillis)), toBytes(getMember(request)), payload(request)};
+        return this.<Long>evalAsync(commands, zSetAddRedisScript, ScriptOutputType.INTEGER, keys, args)
+                .thenApply(firstTimeMillis -> {
+                    // 重置延迟任务
+                    setNextTriggerTimeMillis(zSetKey, firstTimeMillis);
+                    notifyNextTriggerTimeMillis(request.getServiceId(), zSetKey, timeMillis, firstTimeMillis);
+                    return new SendResult(request.getRequestId(), null);
+                });
+    }
+
+    /**
+     * 异步执行脚本，优先使用evalsha提交，脚本未缓存时使用eval提交脚本内容
+     */
+    private <T> CompletableFuture<T> evalAsync(RedisClusterAsyncCommands<byte[], byte[]> commands, DefaultRedisScript<?> script,
+                                               ScriptOutputType outputType, byte[][] keys, byte[][] args) {
+        CompletableFuture<T> future = commands.<T>evalsha(script.getSha1(), outputType, keys, args).toCompletableFuture();
+        return future.handle((result, ex) -> {
+                    if (null == ex) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    if (cause instanceof RedisNoScriptException) {
+                        return commands.<T>eval(script.getScriptAsString(), outputType, keys, args).toCompletableFuture();
+                    }
+                    CompletableFuture<T> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(cause);
+                    return failed;
+                })
+                .thenCompose(f -> f);
+    }
+
+    /**
+     * 获取lettuce共享的原生异步命令对象，连接工厂不是lettuce或未开启共享连接时返回null，
+     * 共享连接只获取一次，连接工厂重置共享连接后重新获取
+     */
+    @SuppressWarnings("unchecked")
+    private RedisClusterAsyncCommands<byte[], byte[]> getAsyncCommands() {
+        RedisClusterAsyncCommands<byte[], byte[]> commands = asyncCommands;
+        if (null != commands && commands.isOpen()) {
+            return commands;
+        }
+        RedisConnectionFactory factory = stringRedisTemplate.getRequiredConnectionFactory();
+        if (!(factory instanceof LettuceConnectionFactory) || !((LettuceConnectionFactory) factory).getShareNativeConnection()) {
+            return null;
+        }
+        // 关闭连接时不会关闭共享的原生连接，命令仍可在其上异步执行
+        try (RedisConnection connection = factory.getConnection()) {
+            Object nativeConnection = connection.getNativeConnection();
+            if (nativeConnection instanceof RedisClusterAsyncCommands) {
+                commands = (RedisClusterAsyncCommands<byte[], byte[]>) nativeConnection;
+                asyncCommands = commands;
+                return commands;
+            }
+            return null;
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] toBytes(List<?> values) {
+        byte[][] bytes = new byte[values.size()][];
+        for (int i = 0; i < values.size(); i++) {
+            bytes[i] = RedisArgsSerializer.INSTANCE.serialize(values.get(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * 编码消息体，开启binaryPayload时为编解码器输出的原始字节，否则为编码字符串的UTF-8字节
+     *
+     * @param request req
+     * @return 消息体字节
+     */
+    private byte[] payload(Request<?> request) {
+        return binaryPayload ? encode(request) : toBytes(encodeToString(request));
+    }
+
+    /**
+     * 执行脚本，参数中的消息体字节原样传递
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T execute(DefaultRedisScript<T> script, List<String> keys, Object... args) {
+        return stringRedisTemplate.execute(script, RedisArgsSerializer.INSTANCE, (RedisSerializer<T>) RedisSerializer.string(), keys, args);
+    }
+
+    private boolean isCluster() {
+        if (null == cluster) {
+            cluster = RedisSlots.isCluster(stringRedisTemplate);
+        }
+        return cluster;
+    }
+
+    /**
+     * 获取消息所在的延时zset分片key，消息按ID散列到各分片
+     *
+     * @param request req
+     * @return zset key
+     */
     public String getZsetKey(Request<?> request) {
-        return getDelayKey(request, RedisConstant.DELAY_ZSET, RedisConstant.DELAY_RETRY_ZSET, RedisConstant.TIMELY_RETRY_ZSET);
+        String zSetKey = getDelayKey(request, RedisConstant.DELAY_ZSET, RedisConstant.DELAY_RETRY_ZSET, RedisConstant.TIMELY_RETRY_ZSET);
+        if (delayShards <= 1) {
+            return zSetKey;
+        }
+        return RedisConstant.shardKey(zSetKey, Math.floorMod(request.getRequestId().hashCode(), delayShards));
+    }
+
+    /**
+     * 获取消息在延时zset中的标识，zset中只保存消息标识，消息体保存在{@link RedisConstant#payloadKey(String)}中
+     * 同一消息再次发送时标识不变，即为重新设定投递时间
+     *
+     * @param request req
+     * @return requestId:deliverId
+     */
+    private static String getMember(Request<?> request) {
+        return request.getRequestId() + ":" + (null == request.getDeliverId() ? "" : request.getDeliverId());
     }
 
     /**
@@ -90,4 +417,33 @@ public class RedisMsgSender extends AbstractSenderAdapter {
             task.refreshNextExecutionTime(timeMillis);
         }
     }
+
+    /**
+     * 通知其他节点重置推送任务的执行时间，仅当发送的消息成为最早到期的消息，且到期时间早于下个轮询周期时通知，
+     * 其余情况各节点的推送任务会按原执行时间推送
+     *
+     * @param serviceId       延时消息所属服务ID
+     * @param zSetKey         延时队列分片key
+     * @param timeMillis      发送消息的到期时间
+     * @param firstTimeMillis 延时队列分片中最早的到期时间
+     */
+    private void notifyNextTriggerTimeMillis(String serviceId, String zSetKey, long timeMillis, Long firstTimeMillis) {
+        if (!delayNotify || null == firstTimeMillis || timeMillis != firstTimeMillis
+                || timeMillis > System.currentTimeMillis() + RedisZSetPushMsgStreamTask.POLL_MILLIS) {
+            return;
+        }
+        try {
+            RedisDelayNotifyListener.publish(stringRedisTemplate, serviceId, zSetKey, timeMillis);
+        } catch (Exception e) {
+            log.warn("delay notify publish error：zSetKey={}", zSetKey, e);
+        }
+    }
+
+    /**
+     * 一个slot的脚本调用参数
+     */
+    private static class ScriptCall {
+        private final List<String> keys = new ArrayList<>();
+        private final List<Object> args = new ArrayList<>();
+    }
 }
@@ -17,11 +17,14 @@ package com.github.likavn.eventbus.provider.redis;
 
 import com.github.likavn.eventbus.core.DeliveryBus;
 import com.github.likavn.eventbus.core.ListenerRegistry;
+import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.utils.Func;
 import com.github.likavn.eventbus.prop.BusProperties;
+import com.github.likavn.eventbus.provider.redis.constant.RedisConstant;
 import com.github.likavn.eventbus.provider.redis.support.AbstractStreamListenerContainer;
 import com.github.likavn.eventbus.provider.redis.support.RedisListener;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.connection.stream.Record;
+import org.springframework.data.redis.connection.stream.MapRecord;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
 import java.util.List;
@@ -52,7 +55,17 @@ public class RedisMsgSubscribeListener extends AbstractStreamListenerContainer {
     }
 
     @Override
-    protected void deliver(RedisListener listener, Record<String, String> msg) {
-        deliveryBus.deliver(listener, msg.getValue());
+    protected void deliver(RedisListener listener, MapRecord<String, String, byte[]> msg) {
+        byte[] payload = msg.getValue().get(RedisConstant.STREAM_PAYLOAD_FIELD);
+        if (!msg.getValue().containsKey(RedisConstant.STREAM_CLAIMED_FIELD)) {
+            deliveryBus.deliver(listener, payload);
+            return;
+        }
+        // 认领的超时未确认消息，按重新投递处理
+        Request<?> request = Func.convertByBytes(payload, listener.getTrigger().getRequestType());
+        request.setDeliverCount(request.getDeliverCount() + 1);
+        request.setDeliverId(listener.getDeliverId());
+        request.setRetry(true);
+        deliveryBus.deliver(listener, request);
     }
 }
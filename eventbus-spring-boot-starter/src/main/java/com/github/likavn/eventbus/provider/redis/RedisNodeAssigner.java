@@ -0,0 +1,152 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.redis;
+
+import com.github.likavn.eventbus.core.TaskRegistry;
+import com.github.likavn.eventbus.core.base.Lifecycle;
+import com.github.likavn.eventbus.core.support.task.PeriodTask;
+import com.github.likavn.eventbus.prop.BusProperties;
+import com.github.likavn.eventbus.provider.redis.constant.RedisConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * redis 后台任务节点分配
+ * <p>
+ * 同一服务的各节点定时上报心跳，按存活节点列表以最高随机权重（rendezvous hash）算法将延时消息分片推送、
+ * pending消息重发、stream过期截取等后台任务分配给固定的节点，节点增减时只有少量任务迁移；
+ * 未分配给当前节点的任务直接跳过，不再访问redis争抢锁，分配给当前节点的任务仍通过锁保证节点列表变化期间不会重复执行
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+@Slf4j
+public class RedisNodeAssigner implements Lifecycle {
+    /**
+     * 心跳时间间隔，单位：毫秒
+     */
+    private static final long HEARTBEAT_MILLIS = 1000L * 10;
+    /**
+     * 节点超过该时长未上报心跳视为下线，单位：毫秒
+     */
+    private static final long NODE_TIMEOUT_MILLIS = HEARTBEAT_MILLIS * 3;
+    /**
+     * 心跳脚本，上报当前节点心跳并清理下线节点，返回存活节点列表
+     */
+    private static final DefaultRedisScript<List> HEARTBEAT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2]); "
+                    + "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[3]); "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[4]); "
+                    + "return redis.call('ZRANGE', KEYS[1], 0, -1);", List.class);
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TaskRegistry taskRegistry;
+    private final String nodesKey;
+    /**
+     * 当前节点标识，与锁持有者标识一致
+     */
+    private final String nodeId;
+    /**
+     * 存活节点列表，未获取到节点列表时所有任务均视为分配给当前节点
+     */
+    private volatile List<String> nodes = Collections.emptyList();
+    private PeriodTask task;
+
+    public RedisNodeAssigner(StringRedisTemplate stringRedisTemplate, TaskRegistry taskRegistry,
+                             BusProperties busProperties, RLock rLock) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.taskRegistry = taskRegistry;
+        this.nodesKey = String.format(RedisConstant.NODES, busProperties.getServiceId());
+        this.nodeId = rLock.getOwner();
+    }
+
+    @Override
+    public synchronized void register() {
+        heartbeat();
+        task = PeriodTask.create(this.getClass().getName(), HEARTBEAT_MILLIS, this::heartbeat);
+        taskRegistry.createTask(task);
+    }
+
+    /**
+     * 上报心跳并刷新存活节点列表
+     */
+    @SuppressWarnings("unchecked")
+    private void heartbeat() {
+        try {
+            long now = System.currentTimeMillis();
+            List<String> list = stringRedisTemplate.execute(HEARTBEAT_SCRIPT, Collections.singletonList(nodesKey),
+                    String.valueOf(now), nodeId, String.valueOf(now - NODE_TIMEOUT_MILLIS), String.valueOf(NODE_TIMEOUT_MILLIS * 2));
+            nodes = null == list ? Collections.emptyList() : new ArrayList<>(list);
+        } catch (Exception e) {
+            log.error("node heartbeat error", e);
+        }
+    }
+
+    /**
+     * 任务是否分配给当前节点
+     *
+     * @param key 任务标识，如延时队列分片key
+     * @return true：分配给当前节点
+     */
+    public boolean isAssigned(String key) {
+        List<String> list = nodes;
+        if (list.isEmpty()) {
+            return true;
+        }
+        String owner = null;
+        long maxWeight = Long.MIN_VALUE;
+        for (String node : list) {
+            long weight = weight(node, key);
+            if (null == owner || weight > maxWeight || (weight == maxWeight && node.compareTo(owner) < 0)) {
+                owner = node;
+                maxWeight = weight;
+            }
+        }
+        return nodeId.equals(owner);
+    }
+
+    /**
+     * 计算节点对任务的权重，对字符串哈希值做二次混淆使权重分布均匀
+     */
+    private static long weight(String node, String key) {
+        long h = ((long) node.hashCode() << 32) ^ (key.hashCode() & 0xffffffffL);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (null != task) {
+            taskRegistry.removeTask(task);
+            task = null;
+        }
+        nodes = Collections.emptyList();
+        // 主动下线，其他节点下次心跳后即可接管任务
+        try {
+            stringRedisTemplate.opsForZSet().remove(nodesKey, nodeId);
+        } catch (Exception e) {
+            log.error("node offline error", e);
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.util.List;
 
 /**
  * redis stream过期消息处理
+ * <p>
+ * 各stream的截取任务按{@link RedisNodeAssigner}分配给固定的节点执行
  *
  * @author likavn
  * @date 2024/3/26
@@ -41,12 +43,12 @@ public class RedisStreamExpiredTask implements Runnable, Lifecycle {
      * 数据清理定时任务，默认：每个小时21分进行清理
      */
     private static final String CRON = "0 21 1/1 * * ?";
-    private final BusProperties busProperties;
+    private final RedisStreamTrim streamTrim;
     private final RLock rLock;
+    private final RedisNodeAssigner nodeAssigner;
     private final StringRedisTemplate redisTemplate;
     private final List<RedisListener> redisSubscribers;
     private final DefaultRedisScript<Long> script;
-    private boolean versionGe62 = false;
     private CronTask task;
     private final TaskRegistry taskRegistry;
 
@@ -54,27 +56,18 @@ public class RedisStreamExpiredTask implements Runnable, Lifecycle {
                                   TaskRegistry taskRegistry,
                                   BusProperties busProperties,
                                   ListenerRegistry registry,
-                                  RLock rLock) {
-        this.busProperties = busProperties;
+                                  RLock rLock,
+                                  RedisNodeAssigner nodeAssigner) {
+        this.streamTrim = new RedisStreamTrim(busProperties);
         this.taskRegistry = taskRegistry;
         this.rLock = rLock;
+        this.nodeAssigner = nodeAssigner;
         this.redisTemplate = redisTemplate;
 
         // 及时消息订阅
         this.redisSubscribers = Func.distinct(RedisListener.getAllListeners(registry), RedisListener::getStreamKey);
-        String redisVersion = busProperties.getRedis().getRedisVersion();
-        // 判断最低版本是否大于等于 6.2
-        if (redisVersion.contains("-")) {
-            redisVersion = redisVersion.substring(0, redisVersion.indexOf("-"));
-        }
-        String[] versions = redisVersion.split("\\.");
-        String bigVersion = versions[0];
-        if (bigVersion.compareTo("6") >= 0
-                && (bigVersion.compareTo("7") >= 0 || (versions.length >= 2 && versions[1].compareTo("2") >= 0))) {
-            versionGe62 = true;
-        }
-        // 过期消息处理脚本
-        String cmd = versionGe62 ? "'MINID'" : "'MAXLEN', '~'";
+        // 过期消息处理脚本，6.2及以上版本按过期时间截取
+        String cmd = streamTrim.isMinId() ? "'MINID'" : "'MAXLEN', '~'";
         this.script = new DefaultRedisScript<>("return redis.call('XTRIM', KEYS[1]," + cmd + ", ARGV[1]);", Long.class);
     }
 
@@ -86,30 +79,24 @@ public class RedisStreamExpiredTask implements Runnable, Lifecycle {
 
     @Override
     public void run() {
-        redisSubscribers.stream().map(RedisListener::getStreamKey).forEach(this::cleanExpired);
+        redisSubscribers.forEach(this::cleanExpired);
     }
 
     /**
-     * 截取过期的消息
+     * 截取过期的消息，写入时截取开启后此处仅作为兜底
      */
-    private void cleanExpired(String streamKey) {
+    private void cleanExpired(RedisListener listener) {
+        String streamKey = listener.getStreamKey();
         String lockKey = streamKey + ".deleteExpiredLock";
+        if (!nodeAssigner.isAssigned(lockKey)) {
+            return;
+        }
         boolean lock = rLock.getLock(lockKey);
         try {
             if (!lock) {
                 return;
             }
-            String param;
-            if (versionGe62) {
-                // stream 过期时间，单位：小时
-                Long expiredHours = busProperties.getRedis().getStreamExpiredHours();
-                // 过期时间毫秒数
-                long expiredMillis = System.currentTimeMillis() - (1000L * 60 * 60 * expiredHours);
-                param = expiredMillis + "-0";
-            } else {
-                Long streamExpiredLength = busProperties.getRedis().getStreamExpiredLength();
-                param = null == streamExpiredLength ? null : streamExpiredLength.toString();
-            }
+            String param = streamTrim.threshold(listener.getCode());
             if (null == param) {
                 return;
             }
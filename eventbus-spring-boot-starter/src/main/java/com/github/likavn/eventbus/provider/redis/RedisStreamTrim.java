@@ -0,0 +1,101 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.redis;
+
+import com.github.likavn.eventbus.prop.BusProperties;
+
+/**
+ * redis stream过期消息截取规则
+ * <p>
+ * 6.2及以上版本按过期时间截取（MINID），低版本按保留的消息数截取（MAXLEN），
+ * 过期时间及保留消息数可按消息编码单独配置
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+public class RedisStreamTrim {
+    /**
+     * 按过期时间截取
+     */
+    public static final String MINID = "MINID";
+    /**
+     * 按保留消息数截取
+     */
+    public static final String MAXLEN = "MAXLEN";
+    /**
+     * 不截取
+     */
+    private static final String[] NONE = {"", ""};
+    private final BusProperties.RedisProperties redis;
+    /**
+     * redis版本是否大于等于6.2，redis版本号在连接后设定，首次使用时判断
+     */
+    private volatile Boolean versionGe62;
+
+    public RedisStreamTrim(BusProperties busProperties) {
+        this.redis = busProperties.getRedis();
+    }
+
+    /**
+     * 是否在写入stream时截取过期消息
+     */
+    public boolean isTrimOnWrite() {
+        return Boolean.TRUE.equals(redis.getStreamTrimOnWrite());
+    }
+
+    /**
+     * 是否按过期时间截取
+     */
+    public boolean isMinId() {
+        if (null == versionGe62) {
+            versionGe62 = redis.isVersionGe(6, 2);
+        }
+        return versionGe62;
+    }
+
+    /**
+     * 写入stream时的截取参数
+     *
+     * @param code 消息编码
+     * @return {截取策略, 截取阈值}，不截取时均为空字符串
+     */
+    public String[] writeArgs(String code) {
+        if (!isTrimOnWrite()) {
+            return NONE;
+        }
+        String threshold = threshold(code);
+        return null == threshold ? NONE : new String[]{isMinId() ? MINID : MAXLEN, threshold};
+    }
+
+    /**
+     * 截取阈值，按过期时间截取时为保留的最小消息ID，否则为保留的消息数
+     *
+     * @param code 消息编码
+     * @return 截取阈值，未配置时为null
+     */
+    public String threshold(String code) {
+        if (isMinId()) {
+            Long expiredHours = redis.getCodeStreamExpiredHours().getOrDefault(code, redis.getStreamExpiredHours());
+            if (null == expiredHours) {
+                return null;
+            }
+            // 过期时间毫秒数
+            return (System.currentTimeMillis() - (1000L * 60 * 60 * expiredHours)) + "-0";
+        }
+        Long expiredLength = redis.getCodeStreamExpiredLength().getOrDefault(code, redis.getStreamExpiredLength());
+        return null == expiredLength ? null : expiredLength.toString();
+    }
+}
@@ -20,16 +20,27 @@ import com.github.likavn.eventbus.core.TaskRegistry;
 import com.github.likavn.eventbus.core.base.Lifecycle;
 import com.github.likavn.eventbus.core.support.task.PeriodTask;
 import com.github.likavn.eventbus.core.utils.Func;
+import com.github.likavn.eventbus.prop.BusProperties;
+import com.github.likavn.eventbus.provider.redis.constant.RedisConstant;
+import com.github.likavn.eventbus.provider.redis.support.RedisArgsSerializer;
 import com.github.likavn.eventbus.provider.redis.support.RedisListener;
+import com.github.likavn.eventbus.provider.redis.support.RedisSlots;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * redis 推送zset消息至stream队列任务
+ * <p>
+ * 延时zset配置了分片时，每个分片创建一个推送任务，各分片使用独立的锁，不同节点可并行推送不同分片；
+ * 各分片按{@link RedisNodeAssigner}分配给固定的节点，节点持续持有并续期分片的锁，其他节点不再争抢
  *
  * @author likavn
  * @since 2023/01/01
@@ -39,26 +50,54 @@ public class RedisZSetPushMsgStreamTask implements Lifecycle {
     /**
      * 最大轮询时间间隔，单位：毫秒
      */
-    private static final long POLL_MILLIS = 1000L * 15;
+    static final long POLL_MILLIS = 1000L * 15;
     /**
-     * 最大消息推送数量，默认10万条
+     * 分片锁的持有时长，需大于最大轮询时间间隔，持有节点每次推送时续期，单位：秒
      */
-    private static final long MAX_PUSH_COUNT = 10000L * 10;
+    private static final long LEASE_SECONDS = POLL_MILLIS * 2 / 1000;
 
     private final StringRedisTemplate stringRedisTemplate;
     private final RLock rLock;
+    private final RedisNodeAssigner nodeAssigner;
     private final DefaultRedisScript<Long> pushMsgStreamRedisScript;
+    private final DefaultRedisScript<String> streamAddRedisScript;
+    private final DefaultRedisScript<Long> zsetRemoveRedisScript;
+    private final RedisStreamTrim streamTrim;
     private final TaskRegistry taskRegistry;
     private final List<RedisListener> listeners;
+    private final int delayShards;
+    /**
+     * 单次推送的最大消息数
+     */
+    private final int pushBatchSize;
+    /**
+     * 单次推送任务的最长执行时间，单位：毫秒
+     */
+    private final long pushMaxMillis;
     private final Set<String> pollLockKeys = Collections.synchronizedSet(new HashSet<>());
     private List<PeriodTask> tasks;
+    /**
+     * 是否为redis集群
+     */
+    private Boolean cluster;
 
     public RedisZSetPushMsgStreamTask(StringRedisTemplate stringRedisTemplate,
-                                      TaskRegistry taskRegistry, DefaultRedisScript<Long> pushMsgStreamRedisScript, RLock rLock, ListenerRegistry registry) {
+                                      TaskRegistry taskRegistry, DefaultRedisScript<Long> pushMsgStreamRedisScript,
+                                      DefaultRedisScript<String> streamAddRedisScript,
+                                      DefaultRedisScript<Long> zsetRemoveRedisScript,
+                                      RLock rLock, RedisNodeAssigner nodeAssigner,
+                                      ListenerRegistry registry, BusProperties busProperties) {
         this.stringRedisTemplate = stringRedisTemplate;
         this.taskRegistry = taskRegistry;
         this.pushMsgStreamRedisScript = pushMsgStreamRedisScript;
+        this.streamAddRedisScript = streamAddRedisScript;
+        this.zsetRemoveRedisScript = zsetRemoveRedisScript;
+        this.streamTrim = new RedisStreamTrim(busProperties);
         this.rLock = rLock;
+        this.nodeAssigner = nodeAssigner;
+        this.delayShards = Math.max(1, busProperties.getRedis().getDelayShards());
+        this.pushBatchSize = Math.max(1, busProperties.getRedis().getDelayPushBatchSize());
+        this.pushMaxMillis = busProperties.getRedis().getDelayPushMaxMillis();
         this.listeners = Func.distinct(RedisListener.getAllListeners(registry), RedisListener::getZSetKey)
                 .stream()
                 // zSetKey必须配置
@@ -68,39 +107,128 @@ public class RedisZSetPushMsgStreamTask implements Lifecycle {
 
     @Override
     public synchronized void register() {
-        this.tasks = listeners.stream().map(t -> {
-            PeriodTask task = PeriodTask.create(t.getZSetKey(), POLL_MILLIS, null);
-            task.setRunnable(() -> pollPushTask(task, t));
-            return task;
-        }).collect(Collectors.toList());
+        if (null == cluster) {
+            cluster = RedisSlots.isCluster(stringRedisTemplate);
+        }
+        this.tasks = new ArrayList<>(listeners.size() * delayShards);
+        for (RedisListener listener : listeners) {
+            for (int shard = 0; shard < delayShards; shard++) {
+                String zSetKey = RedisConstant.shardKey(listener.getZSetKey(), shard);
+                String lockKey = RedisConstant.shardKey(listener.getLockKey(), shard);
+                PeriodTask task = PeriodTask.create(zSetKey, POLL_MILLIS, null);
+                task.setRunnable(() -> pollPushTask(task, zSetKey, lockKey, listener));
+                tasks.add(task);
+            }
+        }
         tasks.forEach(taskRegistry::createTask);
     }
 
     /**
-     * 循环获取延时队列到期消息
+     * 循环获取延时队列分片中的到期消息
+     * 分片未分配给当前节点时释放持有的锁，使分配到的节点尽快接管；分配给当前节点时获取或续期锁后推送，推送后不释放锁
+     *
+     * @param task      推送任务
+     * @param zSetKey   延时队列分片key
+     * @param lockKey   分片锁key
+     * @param listener  监听器，消息推送至其stream
      */
-    private void pollPushTask(PeriodTask task, RedisListener listener) {
-        boolean isLock = false;
-        try {
-            isLock = rLock.getLock(listener.getLockKey());
-            if (!isLock) {
-                return;
+    private void pollPushTask(PeriodTask task, String zSetKey, String lockKey, RedisListener listener) {
+        if (!nodeAssigner.isAssigned(zSetKey)) {
+            if (pollLockKeys.remove(lockKey)) {
+                rLock.releaseLock(lockKey);
             }
-            pollLockKeys.add(listener.getLockKey());
-            Long nextCurrentTimeMillis = stringRedisTemplate.execute(pushMsgStreamRedisScript,
-                    Arrays.asList(listener.getZSetKey(), listener.getStreamKey()),
-                    // 到当前时间之前的消息 + 推送数量
-                    String.valueOf(System.currentTimeMillis()), String.valueOf(MAX_PUSH_COUNT));
-            // 重置轮询时间
-            if (null != nextCurrentTimeMillis) {
-                task.refreshNextExecutionTime(nextCurrentTimeMillis);
+            return;
+        }
+        if (!rLock.getLock(lockKey, LEASE_SECONDS)) {
+            pollLockKeys.remove(lockKey);
+            return;
+        }
+        pollLockKeys.add(lockKey);
+        Long nextCurrentTimeMillis = push(zSetKey, listener.getStreamKey(), listener.getCode());
+        // 重置轮询时间
+        if (null != nextCurrentTimeMillis) {
+            task.refreshNextExecutionTime(nextCurrentTimeMillis);
+        }
+    }
+
+    /**
+     * 推送到期消息至stream，返回下一条消息的到期时间
+     * 每次调用只推送一批消息，在最长执行时间内循环调用；超时仍有到期消息时返回的到期时间早于当前时间，
+     * 任务即刻再次触发，避免积压时单次推送长时间占用redis
+     *
+     * @param zSetKey   延时队列分片key
+     * @param streamKey stream key
+     * @param code      消息编码，用于获取stream截取规则
+     * @return 下一条消息的到期时间
+     */
+    private Long push(String zSetKey, String streamKey, String code) {
+        // redis集群下分片与stream不在同一slot时无法在一个脚本中操作
+        boolean byClient = Boolean.TRUE.equals(cluster)
+                && RedisSlots.slot(zSetKey) != RedisSlots.slot(streamKey);
+        String[] trimArgs = streamTrim.writeArgs(code);
+        long startTimeMillis = System.currentTimeMillis();
+        Long nextTimeMillis;
+        long currentTimeMillis;
+        do {
+            currentTimeMillis = System.currentTimeMillis();
+            nextTimeMillis = byClient ? pushByClient(zSetKey, streamKey, currentTimeMillis, trimArgs)
+                    : stringRedisTemplate.execute(pushMsgStreamRedisScript,
+                    Arrays.asList(zSetKey, streamKey, RedisConstant.payloadKey(zSetKey)),
+                    // 到当前时间之前的消息 + 推送数量 + stream截取规则
+                    String.valueOf(currentTimeMillis), String.valueOf(pushBatchSize), trimArgs[0], trimArgs[1]);
+        } while (null != nextTimeMillis && nextTimeMillis <= currentTimeMillis
+                && System.currentTimeMillis() - startTimeMillis < pushMaxMillis);
+        return nextTimeMillis;
+    }
+
+    /**
+     * 客户端推送一批到期消息至stream，先写入stream再从zset中删除，
+     * 推送过程中节点宕机时消息可能重复推送，但不会丢失；消息体按字节读取并原样写入stream；
+     * 删除时只删除分值仍为读取值的成员，推送期间被重新设定投递时间的消息保留在zset中按新的时间推送
+     *
+     * @param zSetKey           延时队列分片key
+     * @param streamKey         stream key
+     * @param currentTimeMillis 当前时间
+     * @param trimArgs          stream截取规则
+     * @return 下一条消息的到期时间
+     */
+    private Long pushByClient(String zSetKey, String streamKey, long currentTimeMillis, String[] trimArgs) {
+        String payloadKey = RedisConstant.payloadKey(zSetKey);
+        Set<ZSetOperations.TypedTuple<String>> values = stringRedisTemplate.opsForZSet()
+                .rangeByScoreWithScores(zSetKey, 0, currentTimeMillis, 0, pushBatchSize);
+        if (!Func.isEmpty(values)) {
+            List<Object> members = new ArrayList<>(values.size());
+            // 删除参数依次为消息标识、读取的分值
+            Object[] removeArgs = new Object[values.size() * 2];
+            for (ZSetOperations.TypedTuple<String> value : values) {
+                removeArgs[members.size() * 2] = value.getValue();
+                removeArgs[members.size() * 2 + 1] = String.valueOf(value.getScore());
+                members.add(value.getValue());
             }
-        } finally {
-            if (isLock) {
-                rLock.releaseLock(listener.getLockKey());
-                pollLockKeys.remove(listener.getLockKey());
+            byte[][] fields = new byte[members.size()][];
+            for (int i = 0; i < members.size(); i++) {
+                fields[i] = members.get(i).toString().getBytes(StandardCharsets.UTF_8);
             }
+            List<byte[]> payloads = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.hashCommands()
+                    .hMGet(payloadKey.getBytes(StandardCharsets.UTF_8), fields));
+            Object[] args = new Object[members.size() + 3];
+            args[0] = trimArgs[0];
+            args[1] = trimArgs[1];
+            args[2] = String.valueOf(members.size());
+            for (int i = 0; i < members.size(); i++) {
+                // hash中无消息体时为旧版本写入的数据，zset成员即为消息体
+                args[i + 3] = null == payloads || null == payloads.get(i) ? members.get(i) : payloads.get(i);
+            }
+            stringRedisTemplate.execute(streamAddRedisScript, RedisArgsSerializer.INSTANCE, RedisSerializer.string(),
+                    Collections.singletonList(streamKey), args);
+            stringRedisTemplate.execute(zsetRemoveRedisScript, Arrays.asList(zSetKey, payloadKey), removeArgs);
+        }
+        Set<ZSetOperations.TypedTuple<String>> first = stringRedisTemplate.opsForZSet().rangeWithScores(zSetKey, 0, 0);
+        if (Func.isEmpty(first)) {
+            return null;
         }
+        Double score = first.iterator().next().getScore();
+        return null == score ? null : score.longValue();
     }
 
     @Override
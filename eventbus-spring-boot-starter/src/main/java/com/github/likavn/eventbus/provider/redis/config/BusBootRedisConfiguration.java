@@ -20,7 +20,6 @@ import com.github.likavn.eventbus.config.EventBusAutoConfiguration;
 import com.github.likavn.eventbus.core.DeliveryBus;
 import com.github.likavn.eventbus.core.ListenerRegistry;
 import com.github.likavn.eventbus.core.TaskRegistry;
-import com.github.likavn.eventbus.core.api.MsgSender;
 import com.github.likavn.eventbus.core.api.RequestIdGenerator;
 import com.github.likavn.eventbus.core.base.InterceptorContainer;
 import com.github.likavn.eventbus.core.metadata.BusConfig;
@@ -42,6 +41,7 @@ import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.scripting.support.ResourceScriptSource;
 
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -88,6 +88,13 @@ public class BusBootRedisConfiguration {
         }
     }
 
+    @Bean
+    @ConditionalOnMissingBean(RedisNodeAssigner.class)
+    public RedisNodeAssigner redisNodeAssigner(
+            StringRedisTemplate busStringRedisTemplate, TaskRegistry taskRegistry, BusProperties busProperties, RLock rLock) {
+        return new RedisNodeAssigner(busStringRedisTemplate, taskRegistry, busProperties, rLock);
+    }
+
     @Bean
     @ConditionalOnMissingBean(RedisMsgSubscribeListener.class)
     public RedisMsgSubscribeListener redisMsgSubscribeListener(
@@ -107,15 +114,17 @@ public class BusBootRedisConfiguration {
     @Bean
     @ConditionalOnMissingBean(RedisPendingMsgResendTask.class)
     public RedisPendingMsgResendTask redisPendingMsgResendTask(
-            StringRedisTemplate busStringRedisTemplate, TaskRegistry taskRegistry, BusProperties busProperties, ListenerRegistry registry, RLock rLock, MsgSender msgSender) {
-        return new RedisPendingMsgResendTask(busStringRedisTemplate, taskRegistry, busProperties, registry, rLock, msgSender);
+            StringRedisTemplate busStringRedisTemplate, TaskRegistry taskRegistry, BusProperties busProperties, ListenerRegistry registry,
+            RedisMsgSubscribeListener redisMsgSubscribeListener) {
+        return new RedisPendingMsgResendTask(busStringRedisTemplate, taskRegistry, busProperties, registry, redisMsgSubscribeListener);
     }
 
     @Bean
     @ConditionalOnMissingBean(RedisStreamExpiredTask.class)
     public RedisStreamExpiredTask redisStreamExpiredTask(
-            StringRedisTemplate busStringRedisTemplate, TaskRegistry taskRegistry, BusProperties busProperties, ListenerRegistry registry, RLock rLock) {
-        return new RedisStreamExpiredTask(busStringRedisTemplate, taskRegistry, busProperties, registry, rLock);
+            StringRedisTemplate busStringRedisTemplate, TaskRegistry taskRegistry, BusProperties busProperties, ListenerRegistry registry, RLock rLock,
+            RedisNodeAssigner redisNodeAssigner) {
+        return new RedisStreamExpiredTask(busStringRedisTemplate, taskRegistry, busProperties, registry, rLock, redisNodeAssigner);
     }
 
     @Bean
@@ -123,8 +132,21 @@ public class BusBootRedisConfiguration {
     public RedisZSetPushMsgStreamTask redisZsetPushMsgStreamTask(
             StringRedisTemplate busStringRedisTemplate, TaskRegistry taskRegistry,
             @Qualifier("pushMsgStreamRedisScript")
-            DefaultRedisScript<Long> pushMsgStreamRedisScript, RLock rLock, ListenerRegistry registry) {
-        return new RedisZSetPushMsgStreamTask(busStringRedisTemplate, taskRegistry, pushMsgStreamRedisScript, rLock, registry);
+            DefaultRedisScript<Long> pushMsgStreamRedisScript,
+            @Qualifier("streamAddRedisScript")
+            DefaultRedisScript<String> streamAddRedisScript,
+            @Qualifier("zsetRemoveRedisScript")
+            DefaultRedisScript<Long> zsetRemoveRedisScript, RLock rLock, RedisNodeAssigner redisNodeAssigner,
+            ListenerRegistry registry, BusProperties busProperties) {
+        return new RedisZSetPushMsgStreamTask(busStringRedisTemplate, taskRegistry, pushMsgStreamRedisScript, streamAddRedisScript,
+                zsetRemoveRedisScript, rLock, redisNodeAssigner, registry, busProperties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(RedisDelayNotifyListener.class)
+    public RedisDelayNotifyListener redisDelayNotifyListener(
+            StringRedisTemplate busStringRedisTemplate, TaskRegistry taskRegistry, BusProperties busProperties) {
+        return new RedisDelayNotifyListener(busStringRedisTemplate, taskRegistry, busProperties);
     }
 
     @Configuration
@@ -134,12 +156,17 @@ public class BusBootRedisConfiguration {
         @Bean
         @ConditionalOnMissingBean(RedisMsgSender.class)
         public RedisMsgSender msgSender(StringRedisTemplate busStringRedisTemplate,
-                                        BusConfig config,
+                                        BusProperties config,
                                         @Lazy InterceptorContainer interceptorContainer,
                                         @Qualifier("zsetAddRedisScript")
                                         DefaultRedisScript<Long> zsetAddRedisScript,
+                                        @Qualifier("streamAddRedisScript")
+                                        DefaultRedisScript<String> streamAddRedisScript,
+                                        @Qualifier("zsetBatchAddRedisScript")
+                                        DefaultRedisScript<List> zsetBatchAddRedisScript,
                                         TaskRegistry taskRegistry, RequestIdGenerator requestIdGenerator, @Lazy ListenerRegistry registry) {
-            return new RedisMsgSender(busStringRedisTemplate, config, interceptorContainer, zsetAddRedisScript, taskRegistry, requestIdGenerator, registry);
+            return new RedisMsgSender(busStringRedisTemplate, config, interceptorContainer, zsetAddRedisScript, streamAddRedisScript,
+                    zsetBatchAddRedisScript, taskRegistry, requestIdGenerator, registry);
         }
 
         @Bean
@@ -173,6 +200,28 @@ public class BusBootRedisConfiguration {
             return redisScript;
         }
 
+        /**
+         * redis 延时消息批量添加脚本
+         */
+        @Bean
+        public DefaultRedisScript<List> zsetBatchAddRedisScript() {
+            DefaultRedisScript<List> redisScript = new DefaultRedisScript<>();
+            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("script/zsetBatchAdd.lua")));
+            redisScript.setResultType(List.class);
+            return redisScript;
+        }
+
+        /**
+         * redis stream写入脚本
+         */
+        @Bean
+        public DefaultRedisScript<String> streamAddRedisScript() {
+            DefaultRedisScript<String> redisScript = new DefaultRedisScript<>();
+            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("script/streamAdd.lua")));
+            redisScript.setResultType(String.class);
+            return redisScript;
+        }
+
         /**
          * redis推送脚本
          */
@@ -183,5 +232,16 @@ public class BusBootRedisConfiguration {
             redisScript.setResultType(Long.class);
             return redisScript;
         }
+
+        /**
+         * redis延时消息按分值删除脚本
+         */
+        @Bean
+        public DefaultRedisScript<Long> zsetRemoveRedisScript() {
+            DefaultRedisScript<Long> redisScript = new DefaultRedisScript<>();
+            redisScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("script/zsetRemove.lua")));
+            redisScript.setResultType(Long.class);
+            return redisScript;
+        }
     }
 }
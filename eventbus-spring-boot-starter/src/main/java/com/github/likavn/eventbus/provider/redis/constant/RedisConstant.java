@@ -106,4 +106,66 @@ public class RedisConstant {
      */
     public static final String DELAY_RETRY_QUEUE = SUFFIX + "d:retry:queue:{%s}";
 
+    /**
+     * 延时消息到期时间变更通知，pub/sub channel，各服务独立通知
+     * 参数：
+     * <p>
+     * 1.服务ID
+     */
+    public static final String DELAY_NOTIFY_CHANNEL = SUFFIX + "d:notify:{%s}";
+
+    /**
+     * 服务节点，zset key，成员为节点的锁持有者标识，分值为最近心跳时间
+     * 参数：
+     * <p>
+     * 1.服务ID
+     */
+    public static final String NODES = SUFFIX + "nodes:{%s}";
+
+    /**
+     * stream消息体字段名，与spring data redis写入{@code Record.of(value)}时使用的字段名一致
+     */
+    public static final String STREAM_PAYLOAD_FIELD = "payload";
+
+    /**
+     * 认领的超时未确认消息的标记字段，仅在投递缓冲区中标记消息，不写入stream
+     */
+    public static final String STREAM_CLAIMED_FIELD = "claimed";
+
+    /**
+     * 认领消息标记字段的值
+     */
+    public static final byte[] STREAM_CLAIMED_VALUE = new byte[]{1};
+
+    /**
+     * 延时消息体hash key后缀，延时zset中只保存消息标识，消息体保存在同一hashtag下的hash中
+     */
+    private static final String PAYLOAD_SUFFIX = ":payload";
+
+    /**
+     * 分片key，分片序号写入key的hashtag中，使各分片分布于redis集群的不同slot，
+     * 第0分片即为原key，兼容分片前写入的数据
+     * 如：ebus:d:zset:{topic} 的第1分片为 ebus:d:zset:{topic#1}
+     *
+     * @param key   以hashtag结尾的原key
+     * @param shard 分片序号
+     * @return 分片key
+     */
+    public static String shardKey(String key, int shard) {
+        if (shard <= 0) {
+            return key;
+        }
+        return key.substring(0, key.length() - 1) + "#" + shard + "}";
+    }
+
+    /**
+     * 延时zset对应的消息体hash key，与zset位于同一hashtag，可在同一脚本中操作
+     * 如：ebus:d:zset:{topic} 对应 ebus:d:zset:{topic}:payload
+     *
+     * @param zSetKey 延时zset key
+     * @return 消息体hash key
+     */
+    public static String payloadKey(String zSetKey) {
+        return zSetKey + PAYLOAD_SUFFIX;
+    }
 }
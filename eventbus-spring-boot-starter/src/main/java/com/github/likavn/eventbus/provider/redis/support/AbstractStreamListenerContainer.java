@@ -18,24 +18,28 @@ package com.github.likavn.eventbus.provider.redis.support;
 import com.github.likavn.eventbus.core.base.AcquireListeners;
 import com.github.likavn.eventbus.core.base.Lifecycle;
 import com.github.likavn.eventbus.core.constant.BusConstant;
+import com.github.likavn.eventbus.core.metadata.ExecutorType;
 import com.github.likavn.eventbus.core.utils.Func;
 import com.github.likavn.eventbus.core.utils.GroupedThreadPoolExecutor;
 import com.github.likavn.eventbus.core.utils.NamedThreadFactory;
-import com.github.likavn.eventbus.core.utils.PollThreadPoolExecutor;
 import com.github.likavn.eventbus.prop.BusProperties;
+import com.github.likavn.eventbus.provider.redis.constant.RedisConstant;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.stream.Record;
 import org.springframework.data.redis.connection.stream.*;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.stream.StreamMessageListenerContainer;
 import org.springframework.data.redis.stream.StreamMessageListenerContainer.StreamMessageListenerContainerOptions;
+import org.springframework.data.redis.stream.Subscription;
 import org.springframework.util.Assert;
 
 import java.time.Duration;
-import java.util.List;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -48,9 +52,19 @@ import java.util.stream.Collectors;
  **/
 @Slf4j
 public abstract class AbstractStreamListenerContainer implements AcquireListeners<RedisListener>, Lifecycle {
+    /**
+     * 重试stream消息确认并删除脚本，KEYS[1]：stream key，ARGV[1]：消费者组，ARGV[2...]：消息ID
+     */
+    private static final DefaultRedisScript<Long> ACK_DELETE_SCRIPT = new DefaultRedisScript<>(
+            "local ids = {unpack(ARGV, 2)}; local n = redis.call('XACK', KEYS[1], ARGV[1], unpack(ids)); "
+                    + "redis.call('XDEL', KEYS[1], unpack(ids)); return n;", Long.class);
     protected final StringRedisTemplate redisTemplate;
     protected final BusProperties config;
-    protected StreamMessageListenerContainer<String, ObjectRecord<String, String>> container;
+    protected StreamMessageListenerContainer<String, MapRecord<String, String, byte[]>> container;
+    /**
+     * 监听器的拉取任务订阅，key：streamKey.group
+     */
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
 
     protected AbstractStreamListenerContainer(StringRedisTemplate redisTemplate, BusProperties config) {
         this.redisTemplate = redisTemplate;
@@ -80,9 +94,9 @@ public abstract class AbstractStreamListenerContainer implements AcquireListener
         // 根据监听器列表和阻塞配置创建执行器
         Object[] executors = createExecutor();
         // 保存线程池执行器，用于后续的配置
-        ThreadPoolExecutor pollExecutor = (PollThreadPoolExecutor) executors[0];
+        ThreadPoolExecutor pollExecutor = (ThreadPoolExecutor) executors[0];
         // 开始构建监听容器的配置对象
-        StreamMessageListenerContainerOptions<String, ObjectRecord<String, String>> options
+        StreamMessageListenerContainerOptions<String, MapRecord<String, String, byte[]>> options
                 = StreamMessageListenerContainerOptions.builder()
                 .executor(pollExecutor)
                 // 设置一次性最多拉取的消息数量
@@ -91,15 +105,15 @@ public abstract class AbstractStreamListenerContainer implements AcquireListener
                 .errorHandler(t -> log.error("[Eventbus error] ", t))
                 // 设置轮询超时时间，如果设置为0，则表示不超时
                 .pollTimeout(Duration.ofMillis(config.getRedis().getPollBlockMillis()))
-                // 设置序列化器
-                .serializer(new StringRedisSerializer())
-                // 设置目标类型为String
-                .targetType(String.class)
+                // 设置序列化器，消息体按字节读取，由编解码器直接解码
+                .serializer(RedisSerializer.string())
+                .<String, byte[]>hashValueSerializer(RedisSerializer.byteArray())
                 .build();
         // 根据配置对象创建监听容器
         RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
         Assert.notNull(connectionFactory, "RedisConnectionFactory must not be null!");
-        container = new XDefaultStreamMessageListenerContainer<>(connectionFactory, options, (GroupedThreadPoolExecutor) executors[1]);
+        container = new XDefaultStreamMessageListenerContainer<>(connectionFactory, options, (GroupedThreadPoolExecutor) executors[1],
+                config.getRedis().getPollBackoffMaxMillis());
         // 为监听容器添加消费者
         createConsumer(container, listeners);
         // 启动监听容器，开始监听Redis消息
@@ -113,82 +127,160 @@ public abstract class AbstractStreamListenerContainer implements AcquireListener
      */
     private Object[] createExecutor() {
         BusProperties.RedisProperties redis = config.getRedis();
-        // 根据配置创建不同的线程池
-        PollThreadPoolExecutor executor = new PollThreadPoolExecutor(redis.getPollThreadPoolSize(), redis.getPollThreadPoolSize(), 1,
-                TimeUnit.MINUTES, new LinkedBlockingDeque<>(1), new NamedThreadFactory(this.getClass().getSimpleName() + ".poll-"));
+        // 拉取线程池，每个线程循环拉取消息，容器重启时新的拉取线程在队列中等待上次的拉取线程退出
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(redis.getPollThreadPoolSize(), redis.getPollThreadPoolSize(), 1,
+                TimeUnit.MINUTES, new LinkedBlockingQueue<>(), new NamedThreadFactory(this.getClass().getSimpleName() + ".poll-"));
         // 分发消息的线程池
         GroupedThreadPoolExecutor deliverExecutor = new GroupedThreadPoolExecutor(redis.getDeliverGroupThreadPoolSize(), redis.getDeliverGroupThreadKeepAliveTime(),
-                new NamedThreadFactory(this.getClass().getSimpleName() + ".deliver-"));
+                new NamedThreadFactory(this.getClass().getSimpleName() + ".deliver-", ExecutorType.VIRTUAL.valid(config.getExecutor())));
         return new Object[]{executor, deliverExecutor};
     }
 
     /**
      * 创建消费者并将其注册到消息监听器容器中
      * 此方法首先获取当前主机地址，然后为每个Redis监听器创建一个消费者，并配置相应的流偏移量
+     * 每个监听器只注册一个拉取任务，监听器的并发数由拉取任务的投递线程数实现，不再按并发数创建多个拉取任务
      * 如果容器是特定类型（XDefaultStreamMessageListenerContainer），会使用一种特定的方式注册消费者
      * 否则，将使用通用方式使容器接收消息
      *
      * @param container 消息监听器容器，用于管理消费者和处理消息
      * @param listeners 一个或多个Redis事件监听器，每个监听器代表一个消息流的监听点
      */
-    private void createConsumer(StreamMessageListenerContainer<String, ObjectRecord<String, String>> container, List<? extends RedisListener> listeners) {
+    private void createConsumer(StreamMessageListenerContainer<String, MapRecord<String, String, byte[]>> container, List<? extends RedisListener> listeners) {
         // 获取当前设备的主机地址，用于标识消息的消费点
         String hostAddress = Func.getHostAddress();
         // 初始化监听器组，这一步可能涉及到创建或更新Redis中的消费者组
         createGroup(listeners);
         // 遍历每个Redis监听器，为每个流创建并配置消费者
         for (RedisListener listener : listeners) {
-            // 根据监听器的并发级别启动消费者线程
-            Func.pollRun(listener.isRetry() ? listener.getRetryConcurrency() : listener.getConcurrency(), () -> {
-                // 从监听器的组信息和当前主机地址创建一个消费者实例
-                Consumer consumer = Consumer.from(listener.getGroup(), hostAddress);
-                // 创建流偏移量，指定从最后已消费的消息之后开始读取
-                StreamOffset<String> offset = StreamOffset.create(listener.getStreamKey(), ReadOffset.lastConsumed());
-                // 如果容器是XDefaultStreamMessageListenerContainer类型，则使用特定方法注册消费者
-                if (container instanceof XDefaultStreamMessageListenerContainer) {
-                    // 使用构建者模式配置消费者的读取请求，并注册到容器中
-                    // 指定消费策略，包括不自动确认消息和处理消息的回调函数
-                    ((XDefaultStreamMessageListenerContainer<String, ObjectRecord<String, String>>) container).register(StreamMessageListenerContainer
-                                    .StreamReadRequest.builder(offset).consumer(consumer).autoAcknowledge(false).build(),
-                            msg -> deliverMsg(listener, msg), listener);
-                    return;
-                }
-                // 如果容器不是特定类型，则通过接收方法使容器接收消息
-                // 这种方式适用于更广泛的容器类型
-                container.receive(consumer, offset, msg -> deliverMsg(listener, msg));
-            });
+            // 从监听器的组信息和当前主机地址创建一个消费者实例
+            Consumer consumer = Consumer.from(listener.getGroup(), hostAddress);
+            // 创建流偏移量，指定从最后已消费的消息之后开始读取
+            StreamOffset<String> offset = StreamOffset.create(listener.getStreamKey(), ReadOffset.lastConsumed());
+            // 如果容器是XDefaultStreamMessageListenerContainer类型，则使用特定方法注册消费者
+            if (container instanceof XDefaultStreamMessageListenerContainer) {
+                // 使用构建者模式配置消费者的读取请求，并注册到容器中
+                // 指定消费策略，包括不自动确认消息和处理消息的回调函数
+                Subscription subscription = ((XDefaultStreamMessageListenerContainer<String, MapRecord<String, String, byte[]>>) container)
+                        .register(StreamMessageListenerContainer.StreamReadRequest.builder(offset).consumer(consumer).autoAcknowledge(false).build(),
+                                (XBatchStreamListener<String, MapRecord<String, String, byte[]>>) msgs -> deliverMsgs(listener, msgs), listener);
+                subscriptions.put(subscriptionKey(listener), subscription);
+                continue;
+            }
+            // 如果容器不是特定类型，则通过接收方法使容器接收消息
+            // 这种方式适用于更广泛的容器类型
+            container.receive(consumer, offset, msg -> deliverMsgs(listener, Collections.singletonList(msg)));
         }
     }
 
     /**
-     * 消费消息
+     * 监听器投递缓冲区的剩余容量，容器未运行时为0
+     *
+     * @param listener 监听器
+     * @return 剩余容量
+     */
+    public int claimCapacity(RedisListener listener) {
+        XStreamPollTask<?, ?> task = getPollTask(listener);
+        return null == task ? 0 : task.remaining();
+    }
+
+    /**
+     * 认领的超时未确认消息存入监听器的投递缓冲区，与拉取到的消息一样由投递线程投递并批量确认，
+     * 投递时带有{@link RedisConstant#STREAM_CLAIMED_FIELD}标记
+     *
+     * @param listener 监听器
+     * @param claimed  认领的消息，key：消息ID，value：消息体
+     * @return 是否已存入缓冲区，容器未运行时返回false
+     */
+    @SuppressWarnings("unchecked")
+    public boolean deliverClaimed(RedisListener listener, Map<String, byte[]> claimed) {
+        XStreamPollTask<String, MapRecord<String, String, byte[]>> task = (XStreamPollTask<String, MapRecord<String, String, byte[]>>) getPollTask(listener);
+        if (null == task) {
+            return false;
+        }
+        List<MapRecord<String, String, byte[]>> records = new ArrayList<>(claimed.size());
+        claimed.forEach((id, payload) -> {
+            Map<String, byte[]> value = new HashMap<>(4);
+            value.put(RedisConstant.STREAM_PAYLOAD_FIELD, payload);
+            value.put(RedisConstant.STREAM_CLAIMED_FIELD, RedisConstant.STREAM_CLAIMED_VALUE);
+            records.add(StreamRecords.newRecord().in(listener.getStreamKey()).withId(id).ofMap(value));
+        });
+        task.deliver(records);
+        return true;
+    }
+
+    /**
+     * 获取监听器运行中的拉取任务
+     */
+    private XStreamPollTask<?, ?> getPollTask(RedisListener listener) {
+        Subscription subscription = subscriptions.get(subscriptionKey(listener));
+        if (!(subscription instanceof XDefaultStreamMessageListenerContainer.TaskSubscription) || !subscription.isActive()) {
+            return null;
+        }
+        return ((XDefaultStreamMessageListenerContainer.TaskSubscription) subscription).getTask();
+    }
+
+    private static String subscriptionKey(RedisListener listener) {
+        return listener.getStreamKey() + "." + listener.getGroup();
+    }
+
+    /**
+     * 消费一批消息，投递成功的消息在整批投递完成后使用一条多ID的XACK确认，重试stream使用一次脚本调用确认并删除，
+     * 投递失败的消息不做确认，由未确认消息重发任务重新投递
      *
      * @param listener listeners
-     * @param msg      msg
+     * @param msgs     同一stream一次拉取到的消息
      */
-    private void deliverMsg(RedisListener listener, Record<String, String> msg) {
+    private void deliverMsgs(RedisListener listener, List<? extends MapRecord<String, String, byte[]>> msgs) {
         String oldName = Func.reThreadName(BusConstant.THREAD_NAME);
+        List<String> ids = new ArrayList<>(msgs.size());
         try {
-            deliver(listener, msg);
-            redisTemplate.opsForStream().acknowledge(listener.getStreamKey(), listener.getGroup(), msg.getId());
-            if (listener.isRetry()) {
-                redisTemplate.opsForStream().delete(listener.getStreamKey(), msg.getId());
+            for (MapRecord<String, String, byte[]> msg : msgs) {
+                try {
+                    deliver(listener, msg);
+                    ids.add(msg.getId().getValue());
+                } catch (Exception e) {
+                    log.error("[Eventbus error] ", e);
+                }
             }
-        } catch (Exception e) {
-            log.error("[Eventbus error] ", e);
         } finally {
+            acknowledge(listener, ids);
             // 恢复线程名称
             Thread.currentThread().setName(oldName);
         }
     }
 
+    /**
+     * 批量确认消息
+     *
+     * @param listener listener
+     * @param ids      消息ID
+     */
+    private void acknowledge(RedisListener listener, List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            if (listener.isRetry()) {
+                List<String> args = new ArrayList<>(ids.size() + 1);
+                args.add(listener.getGroup());
+                args.addAll(ids);
+                redisTemplate.execute(ACK_DELETE_SCRIPT, Collections.singletonList(listener.getStreamKey()), args.toArray());
+                return;
+            }
+            redisTemplate.opsForStream().acknowledge(listener.getStreamKey(), listener.getGroup(), ids.toArray(new String[0]));
+        } catch (Exception e) {
+            log.error("[Eventbus error] acknowledge streamKey={}", listener.getStreamKey(), e);
+        }
+    }
+
     /**
      * 消费消息
      *
      * @param subscriber 消费者
      * @param msg        消息体
      */
-    protected abstract void deliver(RedisListener subscriber, Record<String, String> msg);
+    protected abstract void deliver(RedisListener subscriber, MapRecord<String, String, byte[]> msg);
 
     @Override
     public void destroy() {
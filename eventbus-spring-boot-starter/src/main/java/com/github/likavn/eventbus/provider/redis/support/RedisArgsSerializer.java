@@ -0,0 +1,51 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.redis.support;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * redis脚本参数序列化器
+ * <p>
+ * 字节数组参数原样传递，其他参数按UTF-8字符串序列化，使消息体字节与字符串参数可以在同一次脚本调用中传递
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+public final class RedisArgsSerializer implements RedisSerializer<Object> {
+    public static final RedisArgsSerializer INSTANCE = new RedisArgsSerializer();
+
+    private RedisArgsSerializer() {
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        if (null == value) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        return bytes;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.redis.support;
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * redis集群slot工具
+ * <p>
+ * redis集群下多个key的命令（脚本、XREADGROUP等）要求所有key位于同一slot，批量操作时需按slot分组
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+public final class RedisSlots {
+    private RedisSlots() {
+    }
+
+    /**
+     * 是否为redis集群
+     *
+     * @param redisTemplate redis template
+     * @return true：集群
+     */
+    public static boolean isCluster(RedisTemplate<?, ?> redisTemplate) {
+        return Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) RedisClusterConnection.class::isInstance));
+    }
+
+    /**
+     * key所在的slot
+     *
+     * @param key key
+     * @return slot
+     */
+    public static int slot(String key) {
+        return ClusterSlotHashUtil.calculateSlot(key);
+    }
+
+    /**
+     * 按key所在的slot分组，非集群时所有数据为一组
+     *
+     * @param cluster 是否为redis集群
+     * @param items   数据
+     * @param keyFn   数据对应的key
+     * @return 分组数据，组内保持原有顺序
+     */
+    public static <T> Collection<List<T>> groupBySlot(boolean cluster, Collection<T> items, Function<T, String> keyFn) {
+        if (!cluster) {
+            return Collections.singletonList(new ArrayList<>(items));
+        }
+        Map<Integer, List<T>> groups = new LinkedHashMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(slot(keyFn.apply(item)), k -> new ArrayList<>()).add(item);
+        }
+        return groups.values();
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.redis.support;
+
+import org.springframework.data.redis.connection.stream.Record;
+import org.springframework.data.redis.stream.StreamListener;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量接收stream消息的监听器，一次拉取到的消息整批交由监听器处理，便于批量确认消息
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+@FunctionalInterface
+public interface XBatchStreamListener<K, V extends Record<K, ?>> extends StreamListener<K, V> {
+
+    /**
+     * 接收一批消息
+     *
+     * @param messages 同一stream一次拉取到的消息
+     */
+    void onMessages(List<V> messages);
+
+    @Override
+    default void onMessage(V message) {
+        onMessages(Collections.singletonList(message));
+    }
+}
@@ -16,7 +16,6 @@
 package com.github.likavn.eventbus.provider.redis.support;
 
 import com.github.likavn.eventbus.core.utils.GroupedThreadPoolExecutor;
-import com.github.likavn.eventbus.core.utils.PollThreadPoolExecutor;
 import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,12 +32,9 @@ import org.springframework.util.Assert;
 import org.springframework.util.ErrorHandler;
 
 import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Queue;
+import java.util.*;
 import java.util.concurrent.*;
-import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -57,13 +53,22 @@ class XDefaultStreamMessageListenerContainer<K, V extends Record<K, ?>> implemen
 
     private final Object lifecycleMonitor = new Object();
 
-    private final PollThreadPoolExecutor streamPollExecutor;
+    /**
+     * 未拉取到消息时的最小拉取间隔，单位：毫秒
+     */
+    private static final long POLL_BACKOFF_MIN_MILLIS = 10L;
+
+    private final ThreadPoolExecutor streamPollExecutor;
 
     private final GroupedThreadPoolExecutor deliverExecutor;
     /**
-     * stream 轮询拉取任务
+     * stream 轮询拉取分组，按下次拉取时间排序
+     */
+    private final DelayQueue<XStreamPollGroup> streamPollGroups = new DelayQueue<>();
+    /**
+     * 未拉取到消息时的最大拉取间隔，单位：毫秒
      */
-    private final BlockingDeque<XStreamPollTask> streamPollTasks = new LinkedBlockingDeque<>();
+    private final long pollBackoffMaxMillis;
     private final ErrorHandler errorHandler;
     private final StreamReadOptions readOptions;
     private final RedisTemplate<K, ?> template;
@@ -72,25 +77,34 @@ class XDefaultStreamMessageListenerContainer<K, V extends Record<K, ?>> implemen
 
     private final List<Subscription> subscriptions = new ArrayList<>();
 
-    private boolean running = false;
+    private volatile boolean running = false;
+    /**
+     * 容器启动次数，容器重新启动后上次启动的拉取线程退出
+     */
+    private volatile int generation = 0;
+
+    /**
+     * 是否为redis集群
+     */
+    private Boolean cluster;
 
     /**
      * Create a new {@link XDefaultStreamMessageListenerContainer}.
      *
      * @param connectionFactory must not be {@literal null}.
      * @param containerOptions  must not be {@literal null}.
-     * @param taskExcExecutor
+     * @param deliverExecutor      投递线程池
+     * @param pollBackoffMaxMillis 未拉取到消息时的最大拉取间隔，单位：毫秒
      */
-    XDefaultStreamMessageListenerContainer(RedisConnectionFactory connectionFactory, StreamMessageListenerContainerOptions<K, V> containerOptions, GroupedThreadPoolExecutor deliverExecutor) {
+    XDefaultStreamMessageListenerContainer(RedisConnectionFactory connectionFactory, StreamMessageListenerContainerOptions<K, V> containerOptions,
+                                           GroupedThreadPoolExecutor deliverExecutor, long pollBackoffMaxMillis) {
 
         Assert.notNull(connectionFactory, "RedisConnectionFactory must not be null!");
         Assert.notNull(containerOptions, "StreamMessageListenerContainerOptions must not be null!");
 
-        this.streamPollExecutor = (PollThreadPoolExecutor) containerOptions.getExecutor();
+        this.streamPollExecutor = (ThreadPoolExecutor) containerOptions.getExecutor();
         this.deliverExecutor = deliverExecutor;
-        this.deliverExecutor.setAfterConsumer(t -> {
-            streamPollTasks.add((XStreamPollTask) t.getTask().getData());
-        });
+        this.pollBackoffMaxMillis = Math.max(POLL_BACKOFF_MIN_MILLIS, pollBackoffMaxMillis);
         this.errorHandler = containerOptions.getErrorHandler();
         this.readOptions = getStreamReadOptions(containerOptions);
         this.template = createRedisTemplate(connectionFactory, containerOptions);
@@ -169,52 +183,79 @@ class XDefaultStreamMessageListenerContainer<K, V extends Record<K, ?>> implemen
                     .map(TaskSubscription::getTask) //
                     .collect(Collectors.toList());
             running = true;
+            tasks.forEach(XStreamPollTask::start);
             doloop(tasks);
         }
     }
 
+    /**
+     * 创建拉取分组并启动拉取线程，每个拉取线程循环取出到达拉取时间的分组进行拉取，无到期分组时阻塞等待
+     */
     public void doloop(List<XStreamPollTask> tasks) {
-        tasks.forEach(task -> streamPollTasks.add(task));
+        streamPollGroups.clear();
+        streamPollGroups.addAll(createPollGroups(tasks));
+        int gen = ++generation;
         int corePoolSize = streamPollExecutor.getCorePoolSize();
         while (corePoolSize-- > 0) {
-            streamPollExecutor.execute(() -> {
-                try {
-                    validWaitTasks();
-                    XStreamPollTask task = streamPollTasks.poll(100, TimeUnit.MILLISECONDS);
-                    if (null == task) {
-                        return;
-                    }
-                    if (task.pull()) {
-                        addWaitTasks(task);
-                    }
-                } catch (InterruptedException e) {
-                    log.error("XDefaultStreamMessageListenerContainer.doloop", e);
-                }
-            });
+            streamPollExecutor.execute(() -> pollLoop(gen));
         }
     }
 
-    private volatile Queue<XStreamPollTask> waitStreamPollTasks = new ConcurrentLinkedQueue<>();
-    private final long waitTimeOut = 1500L;
-
-    private void addWaitTasks(XStreamPollTask task) {
-        task.setLastExecuteTime(System.currentTimeMillis());
-        waitStreamPollTasks.add(task);
+    private void pollLoop(int gen) {
+        while (running && gen == generation) {
+            try {
+                XStreamPollGroup group = streamPollGroups.poll(100, TimeUnit.MILLISECONDS);
+                if (null == group) {
+                    continue;
+                }
+                pull(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("XDefaultStreamMessageListenerContainer.pollLoop", e);
+            }
+        }
     }
 
-    private synchronized void validWaitTasks() {
-        if (waitStreamPollTasks.isEmpty()) {
-            return;
+    /**
+     * 按消费者组将拉取任务合并为拉取分组，同一分组内的stream使用一次XREADGROUP拉取
+     * redis集群下多个key的命令要求key位于同一slot，分组时同时按slot区分
+     */
+    private Collection<XStreamPollGroup> createPollGroups(List<XStreamPollTask> tasks) {
+        if (null == cluster) {
+            cluster = RedisSlots.isCluster(template);
         }
-        XStreamPollTask task;
-        long now = System.currentTimeMillis();
-        while (true) {
-            task = waitStreamPollTasks.peek();
-            if (null == task || now - task.getLastExecuteTime() < waitTimeOut) {
-                break;
+        Map<String, XStreamPollGroup> groups = new LinkedHashMap<>();
+        for (XStreamPollTask task : tasks) {
+            String name = task.getGroupName();
+            if (cluster) {
+                name = name + "#" + RedisSlots.slot(String.valueOf(task.getStreamKey()));
             }
-            waitStreamPollTasks.poll();
-            streamPollTasks.add(task);
+            groups.computeIfAbsent(name, k -> new XStreamPollGroup(k, getGroupReadFunction(task.getRequest()),
+                    g -> streamPollGroups.add((XStreamPollGroup) g))).add(task);
+        }
+        return groups.values();
+    }
+
+    /**
+     * 拉取分组的消息，拉取到消息时分组立即重新加入待拉取队列，未拉取到消息时分组按退避间隔延后拉取，
+     * 所有stream的缓冲区均已满时分组暂停拉取，由缓冲区中的消息被取出投递时重新加入待拉取队列
+     */
+    private void pull(XStreamPollGroup group) {
+        XStreamPollGroup.PullResult result;
+        try {
+            result = group.pull();
+        } catch (RuntimeException e) {
+            errorHandler.handleError(e);
+            result = XStreamPollGroup.PullResult.EMPTY;
+        }
+        if (XStreamPollGroup.PullResult.DATA == result) {
+            group.onData();
+            streamPollGroups.add(group);
+        } else if (XStreamPollGroup.PullResult.EMPTY == result) {
+            group.onEmpty(POLL_BACKOFF_MIN_MILLIS, pollBackoffMaxMillis);
+            streamPollGroups.add(group);
         }
     }
 
@@ -232,7 +273,6 @@ class XDefaultStreamMessageListenerContainer<K, V extends Record<K, ?>> implemen
                 subscriptions.forEach(Cancelable::cancel);
 
                 running = false;
-                streamPollExecutor.terminated();
             }
         }
     }
@@ -271,16 +311,15 @@ class XDefaultStreamMessageListenerContainer<K, V extends Record<K, ?>> implemen
         return doRegister(getReadTask(streamRequest, listener, redisListener));
     }
 
-    @SuppressWarnings("unchecked")
     private XStreamPollTask<K, V> getReadTask(StreamReadRequest<K> streamRequest, StreamListener<K, V> listener, RedisListener redisListener) {
-
-        BiFunction<K, ReadOffset, List<? extends Record<?, ?>>> readFunction = getReadFunction(streamRequest);
-
-        return new XStreamPollTask<>(streamRequest, listener, errorHandler, (BiFunction) readFunction, deliverExecutor, redisListener);
+        return new XStreamPollTask<>(streamRequest, listener, errorHandler, deliverExecutor, redisListener, containerOptions.getBatchSize().orElse(1));
     }
 
+    /**
+     * 多个stream批量读取函数
+     */
     @SuppressWarnings("unchecked")
-    private BiFunction<K, ReadOffset, List<? extends Record<?, ?>>> getReadFunction(StreamReadRequest<K> streamRequest) {
+    private Function<StreamOffset<K>[], List<V>> getGroupReadFunction(StreamReadRequest<K> streamRequest) {
 
         if (streamRequest instanceof StreamMessageListenerContainer.ConsumerStreamReadRequest) {
 
@@ -290,17 +329,17 @@ class XDefaultStreamMessageListenerContainer<K, V extends Record<K, ?>> implemen
             Consumer consumer = consumerStreamRequest.getConsumer();
 
             if (this.containerOptions.getHashMapper() != null) {
-                return (key, offset) -> streamOperations.read(this.containerOptions.getTargetType(), consumer, readOptions, StreamOffset.create(key, offset));
+                return offsets -> (List) streamOperations.read(this.containerOptions.getTargetType(), consumer, readOptions, offsets);
             }
 
-            return (key, offset) -> streamOperations.read(consumer, readOptions, StreamOffset.create(key, offset));
+            return offsets -> (List) streamOperations.read(consumer, readOptions, offsets);
         }
 
         if (this.containerOptions.getHashMapper() != null) {
-            return (key, offset) -> streamOperations.read(this.containerOptions.getTargetType(), readOptions, StreamOffset.create(key, offset));
+            return offsets -> (List) streamOperations.read(this.containerOptions.getTargetType(), readOptions, offsets);
         }
 
-        return (key, offset) -> streamOperations.read(readOptions, StreamOffset.create(key, offset));
+        return offsets -> (List) streamOperations.read(readOptions, offsets);
     }
 
     private Subscription doRegister(XStreamPollTask task) {
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2023-2033, likavn (likavn@163.com).
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.likavn.eventbus.provider.redis.support;
+
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.Record;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+
+import java.util.*;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 同一消费者组的stream拉取分组
+ * <p>
+ * 分组内的stream使用一次XREADGROUP ... STREAMS k1 k2 ... kN批量拉取，每个stream只有一个拉取任务，
+ * 拉取到的消息存入对应任务的本地缓冲区，由任务的投递线程并行投递；只拉取缓冲区未满的stream，
+ * 分组内所有stream的缓冲区均已满时分组暂停拉取，直到有消息投递完成
+ * <p>
+ * 分组按下次拉取时间在待拉取队列中排序，连续未拉取到消息时拉取间隔指数增长，拉取到消息时立即恢复
+ *
+ * @author likavn
+ * @date 2024/10/18
+ **/
+@SuppressWarnings("all")
+class XStreamPollGroup<K, V extends Record<K, ?>> implements Delayed {
+    /**
+     * 拉取结果
+     */
+    enum PullResult {
+        /**
+         * 拉取到消息
+         */
+        DATA,
+        /**
+         * 未拉取到消息
+         */
+        EMPTY,
+        /**
+         * 所有stream的缓冲区均已满，未进行拉取
+         */
+        BUSY
+    }
+
+    private final String name;
+    private final Function<StreamOffset<K>[], List<V>> readFunction;
+    /**
+     * 分组暂停拉取后重新加入待拉取队列的回调
+     */
+    private final Consumer<XStreamPollGroup<K, V>> requeue;
+    /**
+     * 各stream的拉取任务
+     */
+    private final Map<K, XStreamPollTask<K, V>> tasks = new LinkedHashMap<>();
+    /**
+     * 分组是否在待拉取队列中（包括等待队列及正在拉取）
+     */
+    private boolean queued = true;
+    /**
+     * 当前拉取间隔，单位：毫秒
+     */
+    private volatile long backoffMillis = 0;
+    /**
+     * 下次拉取时间
+     */
+    private volatile long nextPollTime = 0;
+
+    XStreamPollGroup(String name, Function<StreamOffset<K>[], List<V>> readFunction, Consumer<XStreamPollGroup<K, V>> requeue) {
+        this.name = name;
+        this.readFunction = readFunction;
+        this.requeue = requeue;
+    }
+
+    /**
+     * 添加拉取任务
+     */
+    synchronized void add(XStreamPollTask<K, V> task) {
+        task.setPollGroup(this);
+        tasks.put(task.getStreamKey(), task);
+    }
+
+    /**
+     * 任务缓冲区中的消息被取出投递后调用，分组已暂停拉取时重新加入待拉取队列
+     */
+    void release() {
+        synchronized (this) {
+            if (queued) {
+                return;
+            }
+            queued = true;
+        }
+        onData();
+        requeue.accept(this);
+    }
+
+    /**
+     * 批量拉取分组内缓冲区未满的stream，并将消息存入对应任务的缓冲区
+     *
+     * @return 拉取结果
+     */
+    PullResult pull() {
+        List<StreamOffset<K>> offsets = new ArrayList<>(tasks.size());
+        synchronized (this) {
+            tasks.forEach((key, task) -> {
+                if (task.isReadable()) {
+                    offsets.add(StreamOffset.create(key, ReadOffset.lastConsumed()));
+                }
+            });
+            if (offsets.isEmpty()) {
+                queued = false;
+                return PullResult.BUSY;
+            }
+        }
+        List<V> read = readFunction.apply(offsets.toArray(new StreamOffset[0]));
+        if (read.isEmpty()) {
+            return PullResult.EMPTY;
+        }
+        Map<K, List<V>> streamRecords = new LinkedHashMap<>(offsets.size());
+        for (V record : read) {
+            streamRecords.computeIfAbsent(record.getStream(), k -> new ArrayList<>()).add(record);
+        }
+        streamRecords.forEach((key, records) -> tasks.get(key).deliver(records));
+        return PullResult.DATA;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * 拉取到消息，立即再次拉取
+     */
+    void onData() {
+        backoffMillis = 0;
+        nextPollTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 未拉取到消息，拉取间隔从最小值开始翻倍增长，直到最大值
+     *
+     * @param minMillis 最小拉取间隔，单位：毫秒
+     * @param maxMillis 最大拉取间隔，单位：毫秒
+     */
+    void onEmpty(long minMillis, long maxMillis) {
+        long millis = backoffMillis <= 0 ? minMillis : backoffMillis * 2;
+        backoffMillis = Math.max(minMillis, Math.min(millis, maxMillis));
+        nextPollTime = System.currentTimeMillis() + backoffMillis;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(nextPollTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        if (o instanceof XStreamPollGroup) {
+            return Long.compare(nextPollTime, ((XStreamPollGroup) o).nextPollTime);
+        }
+        return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+    }
+}
@@ -21,57 +21,92 @@ import org.springframework.data.redis.connection.stream.Consumer;
 import org.springframework.data.redis.connection.stream.ReadOffset;
 import org.springframework.data.redis.connection.stream.Record;
 import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.stream.Cancelable;
 import org.springframework.data.redis.stream.StreamListener;
 import org.springframework.data.redis.stream.StreamMessageListenerContainer.ConsumerStreamReadRequest;
 import org.springframework.data.redis.stream.StreamMessageListenerContainer.StreamReadRequest;
-import org.springframework.data.redis.stream.Task;
+import org.springframework.data.redis.stream.Task.State;
 import org.springframework.util.ErrorHandler;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.function.BiFunction;
-import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * {@link Task} that invokes a {@link BiFunction read function} to poll on a Redis Stream.
+ * Redis Stream拉取任务，消息由所在的{@link XStreamPollGroup 拉取分组}批量拉取
+ * <p>
+ * 每个stream只有一个拉取任务，拉取到的消息存入有界的本地缓冲区，由不超过监听器并发数的投递线程并行投递，
+ * 监听器并发数只决定投递线程数，不再增加stream的拉取次数
  *
  * @author Mark Paluch
  * @see 2.2
  */
 @SuppressWarnings("all")
-class XStreamPollTask<K, V extends Record<K, ?>> implements Task {
+class XStreamPollTask<K, V extends Record<K, ?>> implements Cancelable {
     private final GroupedThreadPoolExecutor deliverExecutor;
     private final StreamReadRequest<K> request;
     private final StreamListener<K, V> listener;
     private final ErrorHandler errorHandler;
-    private final Predicate<Throwable> cancelSubscriptionOnError;
-    private final BiFunction<K, ReadOffset, List<V>> readFunction;
 
     private final XStreamPollTask.PollState pollState;
 
     private GroupedThreadPoolExecutor.GTask task;
-    private volatile boolean isInEventLoop = false;
 
-    private long lastExecuteTime = 0;
+    /**
+     * 本地缓冲区，存放已拉取未投递的消息
+     */
+    private final Queue<V> buffer = new ConcurrentLinkedQueue<>();
+    /**
+     * 缓冲区中的消息数
+     */
+    private final AtomicInteger bufferCount = new AtomicInteger(0);
+    /**
+     * 缓冲区容量，缓冲区消息数小于该值时才拉取消息，单次拉取最多增加一批消息
+     */
+    private final int bufferSize;
+    /**
+     * 投递线程数，等于监听器的并发数
+     */
+    private final int concurrency;
+    /**
+     * 单个投递线程一次最多取出的消息数
+     */
+    private final int batchSize;
+    /**
+     * 正在运行的投递线程数
+     */
+    private final AtomicInteger activeWorkers = new AtomicInteger(0);
+
+    /**
+     * 所在的拉取分组
+     */
+    private XStreamPollGroup<K, V> pollGroup;
 
     XStreamPollTask(StreamReadRequest<K> streamRequest, StreamListener<K, V> listener, ErrorHandler errorHandler,
-                    BiFunction<K, ReadOffset, List<V>> readFunction, GroupedThreadPoolExecutor deliverExecutor, RedisListener redisListener) {
+                    GroupedThreadPoolExecutor deliverExecutor, RedisListener redisListener, int batchSize) {
         this.deliverExecutor = deliverExecutor;
         this.request = streamRequest;
         this.listener = listener;
         this.errorHandler = Optional.ofNullable(streamRequest.getErrorHandler()).orElse(errorHandler);
-        this.cancelSubscriptionOnError = streamRequest.getCancelSubscriptionOnError();
-        this.readFunction = readFunction;
         this.pollState = createPollState(streamRequest);
 
+        this.concurrency = Math.max(1, redisListener.isRetry() ? redisListener.getRetryConcurrency() : redisListener.getConcurrency());
+        this.batchSize = Math.max(1, batchSize);
+        this.bufferSize = Math.max(this.batchSize, concurrency);
         this.task = new GroupedThreadPoolExecutor.GTask();
         String groupName = null == redisListener.getTrigger() ? redisListener.getServiceId() : redisListener.getTrigger().getDeliverId();
-        this.task.setName(groupName);
-        this.task.setConcurrency(redisListener.getConcurrency());
+        // 每个stream的投递线程独立计数
+        this.task.setName(groupName + "|" + streamRequest.getStreamOffset().getKey());
+        this.task.setConcurrency(concurrency);
         this.task.setData(this);
+        this.task.setTarget(this::work);
+        this.task.setReleased(this::released);
     }
 
     private static XStreamPollTask.PollState createPollState(StreamReadRequest<?> streamRequest) {
@@ -94,113 +129,159 @@ class XStreamPollTask<K, V extends Record<K, ?>> implements Task {
         this.pollState.cancel();
     }
 
-    /*
-     * (non-Javadoc)
-     * @see org.springframework.data.redis.stream.Task#getState()
-     */
-    @Override
     public State getState() {
         return pollState.getState();
     }
 
-    /*
-     * (non-Javadoc)
-     * @see org.springframework.data.redis.stream.Task#awaitStart(java.time.Duration)
-     */
-    @Override
     public boolean awaitStart(Duration timeout) throws InterruptedException {
         return pollState.awaitStart(timeout.toNanos(), TimeUnit.NANOSECONDS);
     }
 
-    /*
-     * (non-Javadoc)
-     * @see org.springframework.scheduling.SchedulingAwareRunnable#isLongLived()
+    /**
+     * 容器启动时将任务标记为运行中
      */
-    @Override
-    public boolean isLongLived() {
-        return true;
+    void start() {
+        pollState.starting();
+        pollState.running();
     }
 
-    /*
-     * (non-Javadoc)
-     * @see java.lang.Runnable#run()
+    /**
+     * 缓冲区是否未满，未满时拉取分组才拉取该stream的消息
      */
-    @Override
-    public void run() {
+    boolean isReadable() {
+        return bufferCount.get() < bufferSize;
+    }
 
-        pollState.starting();
+    /**
+     * 缓冲区剩余容量
+     */
+    int remaining() {
+        return Math.max(0, bufferSize - bufferCount.get());
+    }
 
-        try {
+    /**
+     * 拉取到的消息存入缓冲区，并按需启动投递线程
+     *
+     * @param read 拉取到的消息
+     */
+    void deliver(List<V> read) {
+        buffer.addAll(read);
+        bufferCount.addAndGet(read.size());
+        startWorkers();
+    }
 
-            isInEventLoop = true;
-            pollState.running();
-            doLoop(request.getStreamOffset().getKey());
-        } finally {
-            isInEventLoop = false;
+    /**
+     * 投递线程数未达到并发数且缓冲区有消息时启动投递线程，投递线程数不超过并发数，
+     * 投递线程在释放分组许可后才减少计数，提交时总有空闲许可，不会阻塞拉取线程
+     */
+    private void startWorkers() {
+        while (!buffer.isEmpty() && acquireWorker()) {
+            try {
+                this.deliverExecutor.execute(task);
+            } catch (RuntimeException e) {
+                activeWorkers.decrementAndGet();
+                throw e;
+            }
         }
     }
 
-    public boolean pull() {
-        pollState.starting();
-
-        try {
-
-            isInEventLoop = true;
-            pollState.running();
-            return doLoop(request.getStreamOffset().getKey());
-        } finally {
-            isInEventLoop = false;
+    /**
+     * 占用一个投递线程名额
+     *
+     * @return 投递线程数未达到并发数时返回true
+     */
+    private boolean acquireWorker() {
+        int count;
+        while ((count = activeWorkers.get()) < concurrency) {
+            if (activeWorkers.compareAndSet(count, count + 1)) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private boolean doLoop(K key) {
+    /**
+     * 投递线程循环从缓冲区取出消息投递，每次取出的消息数按投递线程数均分缓冲区中的消息，
+     * 使消息尽量分散到各投递线程，同时一次取出的多条消息可以使用一条XACK确认；缓冲区为空时退出
+     */
+    private void work() {
+        List<V> records;
+        while (!(records = take()).isEmpty()) {
+            // 缓冲区腾出空间，通知拉取分组继续拉取
+            if (null != pollGroup) {
+                pollGroup.release();
+            }
+            try {
+                onMessages(records);
+            } catch (RuntimeException e) {
+                errorHandler.handleError(e);
+            }
+        }
+    }
 
-        //  do {
-        try {
+    /**
+     * 投递线程退出并释放分组许可后减少投递线程数，退出前有新消息存入缓冲区时继续投递，避免消息滞留
+     */
+    private void released() {
+        activeWorkers.decrementAndGet();
+        startWorkers();
+    }
 
-            // allow interruption
-            Thread.sleep(0);
-        //    long l = System.currentTimeMillis();
-            List<V> read = readFunction.apply(key, ReadOffset.lastConsumed());
-          //  System.out.println("拉取数据操作，耗时：" + (System.currentTimeMillis() - l));
-            if (read.isEmpty()) {
-                return true;
-            }
-            this.deliverExecutor.execute(task.target(() -> {
-                for (V message : read) {
+    private void onMessages(List<V> records) {
+        if (listener instanceof XBatchStreamListener) {
+            ((XBatchStreamListener<K, V>) listener).onMessages(records);
+            pollState.updateReadOffset(records.get(records.size() - 1).getId().getValue());
+            return;
+        }
+        for (V message : records) {
 
-                    listener.onMessage(message);
-                    pollState.updateReadOffset(message.getId().getValue());
-                }
-            }));
-        } catch (InterruptedException e) {
+            listener.onMessage(message);
+            pollState.updateReadOffset(message.getId().getValue());
+        }
+    }
 
-            cancel();
-            Thread.currentThread().interrupt();
-        } catch (RuntimeException e) {
+    /**
+     * 从缓冲区取出一份消息
+     */
+    private List<V> take() {
+        int size = Math.min(batchSize, Math.max(1, (bufferCount.get() + concurrency - 1) / concurrency));
+        List<V> records = new ArrayList<>(size);
+        V record;
+        while (records.size() < size && null != (record = buffer.poll())) {
+            records.add(record);
+            bufferCount.decrementAndGet();
+        }
+        return records;
+    }
 
-            if (cancelSubscriptionOnError.test(e)) {
-                cancel();
-            }
+    K getStreamKey() {
+        return request.getStreamOffset().getKey();
+    }
 
-            errorHandler.handleError(e);
+    /**
+     * 拉取分组名称，消费者组读取时为消费者组名称，否则为stream key
+     */
+    String getGroupName() {
+        if (request instanceof ConsumerStreamReadRequest) {
+            return ((ConsumerStreamReadRequest<K>) request).getConsumer().getGroup();
         }
-        cancel();
-        return false;
-        //    } while (pollState.isSubscriptionActive());
+        return String.valueOf(getStreamKey());
     }
 
-    public void setLastExecuteTime(long lastExecuteTime) {
-        this.lastExecuteTime = lastExecuteTime;
+    StreamReadRequest<K> getRequest() {
+        return request;
     }
 
-    public long getLastExecuteTime() {
-        return lastExecuteTime;
+    XStreamPollGroup<K, V> getPollGroup() {
+        return pollGroup;
+    }
+
+    void setPollGroup(XStreamPollGroup<K, V> pollGroup) {
+        this.pollGroup = pollGroup;
     }
 
-    @Override
     public boolean isActive() {
-        return State.RUNNING.equals(getState()) || isInEventLoop;
+        return State.RUNNING.equals(getState());
     }
 
     /**
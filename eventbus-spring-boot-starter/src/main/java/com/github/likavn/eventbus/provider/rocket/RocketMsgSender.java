@@ -21,12 +21,20 @@ import com.github.likavn.eventbus.core.base.AbstractSenderAdapter;
 import com.github.likavn.eventbus.core.base.InterceptorContainer;
 import com.github.likavn.eventbus.core.metadata.BusConfig;
 import com.github.likavn.eventbus.core.metadata.data.Request;
+import com.github.likavn.eventbus.core.metadata.data.SendResult;
 import com.github.likavn.eventbus.provider.rocket.constant.RocketConstant;
+import org.apache.rocketmq.client.producer.SendCallback;
 import org.apache.rocketmq.spring.core.RocketMQTemplate;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.MessageBuilder;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import static com.github.likavn.eventbus.provider.rocket.support.RocketListener.keyFormat;
 
 /**
@@ -50,25 +58,92 @@ public class RocketMsgSender extends AbstractSenderAdapter {
 
     @Override
     public void toSend(Request<?> request) {
-        rocketMqTemplate.syncSend(keyFormat(String.format(RocketConstant.TIMELY_QUEUE, request.topic())), request.toJson());
+        rocketMqTemplate.syncSend(keyFormat(String.format(RocketConstant.TIMELY_QUEUE, request.topic())), encode(request));
+    }
+
+    /**
+     * 批量发送及时消息，按目标队列分组后使用批量消息接口发送
+     * <p>
+     * 注：RocketMQ批量消息不支持延时级别，延时消息仍逐条发送
+     *
+     * @param requests req list
+     */
+    @Override
+    public void toSendBatch(List<Request<?>> requests) {
+        Map<String, List<Message<byte[]>>> destinationMessages = new LinkedHashMap<>(4);
+        for (Request<?> request : requests) {
+            String destination = keyFormat(String.format(RocketConstant.TIMELY_QUEUE, request.topic()));
+            destinationMessages.computeIfAbsent(destination, k -> new ArrayList<>()).add(MessageBuilder.withPayload(encode(request)).build());
+        }
+        destinationMessages.forEach(rocketMqTemplate::syncSend);
     }
 
     @Override
     public void toSendDelayMessage(Request<?> request) {
-        // 构建消息对象
-        Message<String> message = MessageBuilder
-                .withPayload(request.toJson())
-                // 消息类型
-                .setHeader(MessageHeaders.CONTENT_TYPE, "text/plain")
-                .build();
         rocketMqTemplate.syncSend(
                 getDelayDestination(request),
-                message,
+                buildDelayMessage(request),
                 // 发送超时时间,十秒
                 10000,
                 Math.toIntExact(request.getDelayTime()));
     }
 
+    /**
+     * 异步发送及时消息，broker响应后在rocketMq回调线程中完成
+     *
+     * @param request req
+     * @return 发送结果
+     */
+    @Override
+    public CompletableFuture<SendResult> toSendAsync(Request<?> request) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        rocketMqTemplate.asyncSend(keyFormat(String.format(RocketConstant.TIMELY_QUEUE, request.topic())),
+                encode(request), sendCallback(request, future));
+        return future;
+    }
+
+    /**
+     * 异步发送延时消息，broker响应后在rocketMq回调线程中完成
+     *
+     * @param request req
+     * @return 发送结果
+     */
+    @Override
+    public CompletableFuture<SendResult> toSendDelayMessageAsync(Request<?> request) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        rocketMqTemplate.asyncSend(
+                getDelayDestination(request),
+                buildDelayMessage(request),
+                sendCallback(request, future),
+                // 发送超时时间,十秒
+                10000,
+                Math.toIntExact(request.getDelayTime()));
+        return future;
+    }
+
+    private SendCallback sendCallback(Request<?> request, CompletableFuture<SendResult> future) {
+        return new SendCallback() {
+            @Override
+            public void onSuccess(org.apache.rocketmq.client.producer.SendResult sendResult) {
+                future.complete(new SendResult(request.getRequestId(), sendResult.getMsgId()));
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
+    private Message<byte[]> buildDelayMessage(Request<?> request) {
+        // 构建消息对象
+        return MessageBuilder
+                .withPayload(encode(request))
+                // 消息类型
+                .setHeader(MessageHeaders.CONTENT_TYPE, "text/plain")
+                .build();
+    }
+
     private String getDelayDestination(Request<?> request) {
         return keyFormat(getDelayKey(request, RocketConstant.DELAY_QUEUE, RocketConstant.DELAY_RETRY_QUEUE, RocketConstant.TIMELY_RETRY_QUEUE));
     }
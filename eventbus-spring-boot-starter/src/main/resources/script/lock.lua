@@ -1,5 +1,5 @@
 ---
---- 分布式锁实现
+--- 分布式锁实现，锁值为持有者标识，持有者再次获取时续期，可作为租约使用
 --- Created by likavn
 --- DateTime: 2024/1/5 09:58
 ---
@@ -7,11 +7,17 @@
 local key = KEYS[1]
 --- 锁的时间，单位：秒
 local secondTime = ARGV[1]
---- 判断是否存在锁
-if redis.call('exists', key) > 0 then
-    return false
-else
-    redis.call('set', key, 1)
+--- 锁持有者标识
+local owner = ARGV[2]
+local current = redis.call('get', key)
+--- 无锁时加锁
+if not current then
+    redis.call('set', key, owner, 'EX', secondTime)
+    return true
+end
+--- 持有者续期
+if current == owner then
     redis.call('expire', key, secondTime)
     return true
-end
\ No newline at end of file
+end
+return false
@@ -0,0 +1,66 @@
+---
+--- 认领超时未确认的消息，返回{下次认领的起始ID, 消息ID1, 消息体1, 消息ID2, 消息体2...}
+--- Created by likavn
+--- DateTime: 2024/10/18 10:15
+---
+--- 按ID认领（JUSTID）后再逐条读取消息体，redis 6.2中已被删除（XTRIM、XADD MINID/MAXLEN截取等）的pending消息
+--- 在XAUTOCLAIM的返回值中为nil，无法得到其ID；按ID认领时可识别出这类消息，直接确认，不再返回
+--- redis 6.2以下版本不支持XAUTOCLAIM，按起始ID读取一批pending消息后使用XCLAIM认领，XCLAIM只认领空闲时间达到最小空闲时间的消息，
+--- 已被其他节点认领的消息不在返回值中
+---
+--- KEYS[1]：stream key
+--- ARGV[1]：消费者组，ARGV[2]：消费者，ARGV[3]：最小空闲时间（毫秒），ARGV[4]：起始ID，ARGV[5]：单次认领数量，
+--- ARGV[6]：是否为重试stream（1：是），重试stream中缺少消息体的消息同时删除，ARGV[7]：是否使用XAUTOCLAIM认领（1：是）
+---
+local key = KEYS[1]
+local group = ARGV[1]
+local cursor = '0-0'
+local ids = {}
+if ARGV[7] == '1' then
+    local r = redis.call('XAUTOCLAIM', key, group, ARGV[2], ARGV[3], ARGV[4], 'COUNT', ARGV[5], 'JUSTID')
+    cursor = r[1]
+    ids = r[2]
+else
+    local pending = redis.call('XPENDING', key, group, ARGV[4], '+', ARGV[5])
+    if #pending > 0 then
+        local args = { key, group, ARGV[2], ARGV[3] }
+        for _, p in ipairs(pending) do
+            args[#args + 1] = p[1]
+        end
+        args[#args + 1] = 'JUSTID'
+        ids = redis.call('XCLAIM', unpack(args))
+        --- 读满一批时从最后一条消息的下一个ID继续认领
+        if #pending >= tonumber(ARGV[5]) then
+            local ms, seq = string.match(pending[#pending][1], '(%d+)-(%d+)')
+            cursor = ms .. '-' .. string.format('%d', tonumber(seq) + 1)
+        end
+    end
+end
+local res = { cursor }
+local dead = {}
+for _, id in ipairs(ids) do
+    local entry = redis.call('XRANGE', key, id, id)[1]
+    local payload
+    if entry then
+        local fields = entry[2]
+        for i = 1, #fields, 2 do
+            if fields[i] == 'payload' then
+                payload = fields[i + 1]
+            end
+        end
+    end
+    if payload then
+        res[#res + 1] = id
+        res[#res + 1] = payload
+    else
+        dead[#dead + 1] = id
+    end
+end
+--- 已被删除或缺少消息体的消息直接确认
+if #dead > 0 then
+    redis.call('XACK', key, group, unpack(dead))
+    if ARGV[6] == '1' then
+        redis.call('XDEL', key, unpack(dead))
+    end
+end
+return res
@@ -3,39 +3,52 @@
 --- Created by likavn
 --- DateTime: 2024/1/5 09:58
 ---
+--- 单次调用只推送一批到期消息，避免积压时长时间阻塞redis，剩余消息由客户端循环调用推送
+---
 --- delay zset key
 local delayKey = KEYS[1]
 local delayStreamKey = KEYS[2]
+--- 延时消息体hash key
+local payloadKey = KEYS[3]
 --- 当前时间搓
 local currentTimeMillis = ARGV[1]
---- 最大推送消息数,默认10万数据
-local maxPushCount = ARGV[2] or 1000000
---- 每次处理的最大消息数
-local msgCount = 1000
-
---- 轮询次数
-local pollCount = maxPushCount / msgCount
-local remainingPushCount = maxPushCount % msgCount
+--- 单次推送的最大消息数
+local msgCount = tonumber(ARGV[2]) or 1000
+--- stream截取策略（MAXLEN、MINID），为空时不截取
+local trimStrategy = ARGV[3] or ''
+--- stream截取阈值
+local trimThreshold = ARGV[4]
+--- 单次命令展开的最大成员数，避免超出lua unpack的栈限制
+local unpackSize = 1000
 
---- 循环推送消息
-while pollCount >= 0 do
-    if pollCount == 0 then
-        if remainingPushCount > 0 then
-            msgCount = remainingPushCount
-        else
-            break
+--- 按unpackSize分段执行多成员命令，返回各段结果合并后的列表
+local function callChunked(cmd, key, members)
+    local res = {}
+    for i = 1, #members, unpackSize do
+        local part = redis.call(cmd, key, unpack(members, i, math.min(i + unpackSize - 1, #members)))
+        if type(part) == 'table' then
+            for j = 1, #part do
+                res[i + j - 1] = part[j]
+            end
         end
     end
-    local expiredValues = redis.call('zrangebyscore', delayKey, 0, currentTimeMillis, 'limit', 0, msgCount)
-    if #expiredValues > 0 then
-        for _, v in ipairs(expiredValues) do
-            redis.call('xadd', delayStreamKey, '*', 'payload', v)
-            redis.call('zrem', delayKey, v)
+    return res
+end
+
+local expiredValues = redis.call('zrangebyscore', delayKey, 0, currentTimeMillis, 'limit', 0, msgCount)
+if #expiredValues > 0 then
+    local payloads = callChunked('hmget', payloadKey, expiredValues)
+    for i, v in ipairs(expiredValues) do
+        --- hash中无消息体时为旧版本写入的数据，zset成员即为消息体
+        local payload = payloads[i] or v
+        if trimStrategy ~= '' then
+            redis.call('xadd', delayStreamKey, trimStrategy, '~', trimThreshold, '*', 'payload', payload)
+        else
+            redis.call('xadd', delayStreamKey, '*', 'payload', payload)
         end
-    else
-        break
     end
-    pollCount = pollCount - 1
+    callChunked('zrem', delayKey, expiredValues)
+    callChunked('hdel', payloadKey, expiredValues)
 end
 
 --- 下个消息的过期时间
@@ -43,4 +56,4 @@ local v = redis.call('zrange', delayKey, 0, 0, 'withscores');
 if v[1] ~= nil then
     return tonumber(v[2]);
 end
-return nil;
\ No newline at end of file
+return nil;
@@ -0,0 +1,28 @@
+---
+--- 写入消息到redis stream，写入时按近似方式截取过期消息
+--- Created by likavn
+--- DateTime: 2024/10/18 10:15
+---
+--- KEYS：stream key，redis集群下所有key须位于同一slot
+--- ARGV：按stream依次排列，每个stream为：截取策略（MAXLEN、MINID，为空时不截取）、截取阈值、消息数量、消息体...
+---
+local index = 1
+local id
+for k = 1, #KEYS do
+    local streamKey = KEYS[k]
+    local trimStrategy = ARGV[index]
+    local trimThreshold = ARGV[index + 1]
+    local count = tonumber(ARGV[index + 2])
+    index = index + 3
+    --- 写入消息
+    for i = index, index + count - 1 do
+        if trimStrategy ~= '' then
+            id = redis.call('XADD', streamKey, trimStrategy, '~', trimThreshold, '*', 'payload', ARGV[i])
+        else
+            id = redis.call('XADD', streamKey, '*', 'payload', ARGV[i])
+        end
+    end
+    index = index + count
+end
+--- 最后一条消息的ID
+return id;
@@ -5,16 +5,21 @@
 ---
 --- 延时队列key
 local delayKey = KEYS[1]
+--- 延时消息体hash key
+local payloadKey = KEYS[2]
 --- timeout
 local timeout = ARGV[1]
+--- 消息标识（requestId:deliverId）
+local member = ARGV[2]
 --- 延时数据
-local jsBody = ARGV[2]
----- 添加数据
-redis.call('ZADD', delayKey, timeout, jsBody);
+local jsBody = ARGV[3]
+---- 添加数据，zset中只保存消息标识，消息体保存在hash中；标识已存在时即为重新设定投递时间
+redis.call('HSET', payloadKey, member, jsBody);
+redis.call('ZADD', delayKey, timeout, member);
 
 --- 下个消息的过期时间
 local v = redis.call('zrange', delayKey, 0, 0, 'withscores');
 if v[1] ~= nil then
     return tonumber(v[2]);
 end
-return nil;
\ No newline at end of file
+return nil;
@@ -0,0 +1,27 @@
+---
+--- 延时数据批量发送
+--- Created by likavn
+--- DateTime: 2024/10/18 10:15
+---
+--- KEYS：按延时队列依次排列，每个延时队列为：zset key、消息体hash key，redis集群下所有key须位于同一slot
+--- ARGV：按延时队列依次排列，每个延时队列为：消息数量、(到期时间、消息标识、消息体)...
+---
+local res = {}
+local index = 1
+for k = 1, #KEYS, 2 do
+    local delayKey = KEYS[k]
+    local payloadKey = KEYS[k + 1]
+    local count = tonumber(ARGV[index])
+    index = index + 1
+    for i = 1, count do
+        ---- 添加数据，zset中只保存消息标识，消息体保存在hash中
+        redis.call('HSET', payloadKey, ARGV[index + 1], ARGV[index + 2])
+        redis.call('ZADD', delayKey, ARGV[index], ARGV[index + 1])
+        index = index + 3
+    end
+    --- 下个消息的过期时间
+    local v = redis.call('zrange', delayKey, 0, 0, 'withscores')
+    res[#res + 1] = tonumber(v[2])
+end
+--- 各延时队列下个消息的过期时间
+return res;
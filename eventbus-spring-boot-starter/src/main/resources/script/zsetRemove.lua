@@ -0,0 +1,24 @@
+---
+--- 删除已推送的延时消息
+--- Created by likavn
+--- DateTime: 2024/10/18
+---
+--- 客户端推送期间消息可能被重新设定投递时间，只删除分值仍为推送前读取值的成员及其消息体
+---
+--- 延时队列key
+local delayKey = KEYS[1]
+--- 延时消息体hash key
+local payloadKey = KEYS[2]
+
+local removed = 0
+--- 参数依次为消息标识、推送前读取的分值
+for i = 1, #ARGV, 2 do
+    local member = ARGV[i]
+    local score = redis.call('ZSCORE', delayKey, member)
+    if score and tonumber(score) == tonumber(ARGV[i + 1]) then
+        redis.call('ZREM', delayKey, member)
+        redis.call('HDEL', payloadKey, member)
+        removed = removed + 1
+    end
+end
+return removed
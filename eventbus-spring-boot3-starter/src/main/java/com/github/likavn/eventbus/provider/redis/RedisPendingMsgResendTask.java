@@ -17,25 +17,36 @@ package com.github.likavn.eventbus.provider.redis;
 
 import com.github.likavn.eventbus.core.ListenerRegistry;
 import com.github.likavn.eventbus.core.TaskRegistry;
-import com.github.likavn.eventbus.core.api.MsgSender;
 import com.github.likavn.eventbus.core.base.Lifecycle;
-import com.github.likavn.eventbus.core.metadata.data.Request;
 import com.github.likavn.eventbus.core.support.task.CronTask;
 import com.github.likavn.eventbus.core.utils.Func;
 import com.github.likavn.eventbus.prop.BusProperties;
+import com.github.likavn.eventbus.provider.redis.support.AbstractStreamListenerContainer;
+import com.github.likavn.eventbus.provider.redis.support.RedisArgsSerializer;
 import com.github.likavn.eventbus.provider.redis.support.RedisListener;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Range;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.RedisSystemException;
-import org.springframework.data.redis.connection.stream.*;
-import org.springframework.data.redis.core.StreamOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
 import org.springframework.util.CollectionUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 重新发送超时待确认消息任务
+ * <p>
+ * 将超时未确认的消息分批转移至当前节点的消费者，存入监听器的投递缓冲区，与拉取到的消息一样由投递线程投递并批量确认，
+ * redis 6.2及以上版本使用XAUTOCLAIM认领，低版本读取pending消息后使用XCLAIM认领
+ * <p>
+ * 认领在redis中原子执行，同一条消息只会被一个节点认领，各节点均执行认领，积压的pending消息由所有节点共同消费
  *
  * @author likavn
  * @date 2024/1/4
@@ -44,24 +55,52 @@ import java.util.List;
 public class RedisPendingMsgResendTask implements Runnable, Lifecycle {
     private static final long POLLING_INTERVAL = 35L;
     private static final String CRON = POLLING_INTERVAL + " * * * * ?";
+    /**
+     * 认领超时消息脚本，返回{下次认领的起始ID, 消息ID1, 消息体1, 消息ID2, 消息体2...}，
+     * 已被删除的消息在脚本中直接确认，返回值按字节读取
+     */
+    private static final DefaultRedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>();
+    @SuppressWarnings("all")
+    private static final RedisSerializer<List> BYTES_SERIALIZER = (RedisSerializer) RedisSerializer.byteArray();
+    /**
+     * 认领的起始及结束ID
+     */
+    private static final String CLAIM_START_ID = "0-0";
+
+    static {
+        CLAIM_SCRIPT.setScriptSource(new ResourceScriptSource(new ClassPathResource("script/pendingClaim.lua")));
+        CLAIM_SCRIPT.setResultType(List.class);
+    }
+
     private final BusProperties busProperties;
-    private final RLock rLock;
-    private final MsgSender msgSender;
     private final StringRedisTemplate stringRedisTemplate;
     private final List<RedisListener> redisSubscribers;
     private CronTask task;
     private final TaskRegistry taskRegistry;
+    private final AbstractStreamListenerContainer listenerContainer;
+    /**
+     * 是否使用XAUTOCLAIM认领消息，redis 6.2及以上版本支持
+     */
+    private final String autoClaim;
+    /**
+     * 当前节点的消费者名称
+     */
+    private final String consumerName;
+    /**
+     * 任务是否正在执行，避免上次执行未结束时重复执行
+     */
+    private final AtomicBoolean running = new AtomicBoolean(false);
 
     public RedisPendingMsgResendTask(StringRedisTemplate stringRedisTemplate, TaskRegistry taskRegistry,
                                      BusProperties busProperties, ListenerRegistry registry,
-                                     RLock rLock,
-                                     MsgSender msgSender) {
+                                     AbstractStreamListenerContainer listenerContainer) {
         // 一分钟执行一次,这里选择每分钟的35秒执行，是为了避免整点任务过多的问题
         this.stringRedisTemplate = stringRedisTemplate;
         this.taskRegistry = taskRegistry;
         this.busProperties = busProperties;
-        this.rLock = rLock;
-        this.msgSender = msgSender;
+        this.listenerContainer = listenerContainer;
+        this.autoClaim = busProperties.getRedis().isVersionGe(6, 2) ? "1" : "0";
+        this.consumerName = Func.getHostAddress();
         // 及时消息订阅
         this.redisSubscribers = RedisListener.getAllListeners(registry);
     }
@@ -74,120 +113,56 @@ public class RedisPendingMsgResendTask implements Runnable, Lifecycle {
 
     @Override
     public void run() {
-        this.redisSubscribers.forEach(subscriber -> {
-            String lockKey = subscriber.getStreamKey() + ".pendingMsgResendLock." + subscriber.getGroup();
-            // 获取锁,并锁定一定间隔时长，此处故意不释放锁，防止重复执行
-            boolean lock = false;
-            try {
-                lock = rLock.getLock(lockKey, POLLING_INTERVAL * 2);
-                if (!lock) {
-                    return;
-                }
-                pendingMessagesResendExecute(subscriber);
-            } catch (Exception e) {
-                log.error("pending消息重发异常", e);
-            } finally {
-                if (lock) {
-                    try {
-                        rLock.releaseLock(lockKey);
-                    } catch (Exception e) {
-                        log.error("pending.releaseLock", e);
-                    }
-                }
-            }
-        });
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.redisSubscribers.forEach(this::claimExecute);
+        } finally {
+            running.set(false);
+        }
     }
 
     /**
-     * 重新发送pending消息
+     * 认领超时未确认的消息，交由监听器的投递线程投递
      *
      * @param subscriber 消费者
      */
-    private void pendingMessagesResendExecute(RedisListener subscriber) {
-        StreamOperations<String, String, String> sops = stringRedisTemplate.opsForStream();
-        // 获取my_group中的pending消息信息
-        PendingMessagesSummary stats;
+    private void claimExecute(RedisListener subscriber) {
+        String minIdleMillis = String.valueOf(1000L * busProperties.getRedis().getDeliverTimeout());
+        int batchSize = busProperties.getRedis().getPendingMessagesBatchSize();
+        String startId = CLAIM_START_ID;
         try {
-            stats = sops.pending(subscriber.getStreamKey(), subscriber.getGroup());
-        } catch (RedisSystemException e) {
-            if (("" + e.getMessage()).contains("No such key")) {
-                return;
-            }
-            log.error(e.getMessage());
-            return;
-        }
-        if (null == stats) {
-            return;
-        }
-        // 所有pending消息的数量
-        long totalMsgNum = stats.getTotalPendingMessages();
-        if (totalMsgNum <= 0) {
-            return;
-        }
-
-        log.debug("消费组：{}，一共有{}条pending消息...", subscriber.getGroup(), totalMsgNum);
-        // 每个消费者的pending消息数量
-        stats.getPendingMessagesPerConsumer().forEach((consumerName, msgCount) -> {
-            if (msgCount <= 0) {
-                return;
-            }
-            log.debug("消费者：{}，一共有{}条pending消息", consumerName, msgCount);
-            int pendingMessagesBatchSize = busProperties.getRedis().getPendingMessagesBatchSize();
             do {
-                // 读取消费者pending队列的前N条记录，从ID=0的记录开始，一直到ID最大值
-                PendingMessages pendingMessages = sops.pending(subscriber.getStreamKey(),
-                        Consumer.from(subscriber.getGroup(), consumerName), Range.unbounded(), pendingMessagesBatchSize);
-                if (pendingMessages.isEmpty()) {
+                // 认领数量不超过投递缓冲区的剩余容量，缓冲区已满时剩余的消息下次执行时再认领
+                int count = Math.min(batchSize, listenerContainer.claimCapacity(subscriber));
+                if (count <= 0) {
                     return;
                 }
-                pushMessage(subscriber, pendingMessages);
-            } while ((msgCount = msgCount - pendingMessagesBatchSize) > 0);
-        });
-    }
-
-    /**
-     * 从pending队列中读取消息
-     */
-    public void pushMessage(RedisListener listener, PendingMessages pendingMessages) {
-        // 遍历所有pending消息的详情
-        pendingMessages.get().parallel().forEach(message -> {
-            // 消息的ID
-            String recordId = message.getId().getValue();
-            // 未达到订阅消息投递超时时间 不做处理
-            long lastDelivery = message.getElapsedTimeSinceLastDelivery().getSeconds();
-            if (lastDelivery < busProperties.getRedis().getDeliverTimeout()) {
-                return;
-            }
-            // 通过streamOperations，直接读取这条pending消息，
-            List<ObjectRecord<String, String>> result = stringRedisTemplate
-                    .opsForStream().range(String.class, listener.getStreamKey(), Range.closed(recordId, recordId));
-            if (CollectionUtils.isEmpty(result)) {
-                acknowledge(listener, message.getId());
+                List<byte[]> result = stringRedisTemplate.execute(CLAIM_SCRIPT, RedisArgsSerializer.INSTANCE, BYTES_SERIALIZER,
+                        Collections.singletonList(subscriber.getStreamKey()), subscriber.getGroup(), consumerName, minIdleMillis, startId,
+                        String.valueOf(count), subscriber.isRetry() ? "1" : "0", autoClaim);
+                if (CollectionUtils.isEmpty(result)) {
+                    return;
+                }
+                startId = new String(result.get(0), StandardCharsets.UTF_8);
+                Map<String, byte[]> claimed = new LinkedHashMap<>();
+                for (int i = 1; i + 1 < result.size(); i += 2) {
+                    claimed.put(new String(result.get(i), StandardCharsets.UTF_8), result.get(i + 1));
+                }
+                // 交由监听器的投递线程投递并批量确认，容器已停止时消息留在pending中，超时后再次被认领
+                if (!claimed.isEmpty() && !listenerContainer.deliverClaimed(subscriber, claimed)) {
+                    return;
+                }
+            } while (!CLAIM_START_ID.equals(startId));
+        } catch (RedisSystemException e) {
+            if (("" + e.getMessage()).contains("No such key")) {
                 return;
             }
-            Request<?> request = Func.convertByJson(result.get(0).getValue());
-            request.setDeliverCount(request.getDeliverCount() + 1);
-            // 重新投递消息
-            request.setDeliverId(listener.getDeliverId());
-            request.setDelayTime(1L);
-            request.setRetry(true);
-            msgSender.sendDelayMessage(request);
-            acknowledge(listener, message.getId());
-            // 重试队列删除消息
-            if (listener.isRetry()) {
-                stringRedisTemplate.opsForStream().delete(listener.getStreamKey(), message.getId());
-            }
-        });
-    }
-
-    /**
-     * 确认消费
-     *
-     * @param subscriber 消费者
-     * @param recordId   消息ID
-     */
-    private void acknowledge(RedisListener subscriber, RecordId recordId) {
-        stringRedisTemplate.opsForStream().acknowledge(subscriber.getStreamKey(), subscriber.getGroup(), recordId);
+            log.error("pending消息认领异常", e);
+        } catch (Exception e) {
+            log.error("pending消息认领异常", e);
+        }
     }
 
     @Override